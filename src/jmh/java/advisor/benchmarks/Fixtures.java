@@ -0,0 +1,30 @@
+package advisor.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Loads the recorded Spotify payloads under {@code src/jmh/resources/fixtures}.
+ *
+ * @author Alex Giazitzis
+ */
+final class Fixtures {
+    private Fixtures() {
+    }
+
+    /**
+     * @param  name - the file name of the fixture, e.g. {@code new-releases-50.json}.
+     * @return the bytes of the fixture.
+     */
+    static byte[] load(final String name) {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) {
+                throw new IllegalArgumentException("No fixture named " + name);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
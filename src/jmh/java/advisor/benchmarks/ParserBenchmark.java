@@ -0,0 +1,96 @@
+package advisor.benchmarks;
+
+import advisor.entities.Album;
+import advisor.entities.Category;
+import advisor.entities.Page;
+import advisor.entities.Playlist;
+import advisor.services.ParserService;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the browse payloads, both from a response stream and from a {@link java.lang.String} body,
+ * along with a JSON tree baseline, which is what detecting the error field used to cost on every response.
+ *
+ * @author Alex Giazitzis
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+    @Param({"5", "20", "50"})
+    private int size;
+
+    private final ParserService service = new ParserService();
+    private       byte[]        playlists;
+    private       byte[]        categories;
+    private       byte[]        albums;
+    private       byte[]        error;
+    private       String        albumsJson;
+    private       String        errorJson;
+
+    @Setup
+    public void setUp() {
+        playlists = Fixtures.load("featured-playlists-" + size + ".json");
+        categories = Fixtures.load("categories-" + size + ".json");
+        albums = Fixtures.load("new-releases-" + size + ".json");
+        error = Fixtures.load("error.json");
+        albumsJson = new String(albums, StandardCharsets.UTF_8);
+        errorJson = new String(error, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Page<Playlist> playlistsStream() throws IOException {
+        return service.getPlaylists(new ByteArrayInputStream(playlists));
+    }
+
+    @Benchmark
+    public Page<Category> categoriesStream() throws IOException {
+        return service.getCategories(new ByteArrayInputStream(categories));
+    }
+
+    @Benchmark
+    public Page<Album> albumsStream() throws IOException {
+        return service.getAlbums(new ByteArrayInputStream(albums));
+    }
+
+    @Benchmark
+    public List<Album> albumsString() {
+        return service.getAlbums(albumsJson);
+    }
+
+    @Benchmark
+    public Page<Playlist> errorStream() throws IOException {
+        return service.getPlaylists(new ByteArrayInputStream(error));
+    }
+
+    @Benchmark
+    public String errorMessage() {
+        return service.getErrorMessage(errorJson);
+    }
+
+    @Benchmark
+    public JsonElement albumsTree() {
+        return JsonParser.parseString(albumsJson);
+    }
+}
@@ -0,0 +1,82 @@
+package advisor.benchmarks;
+
+import advisor.entities.Album;
+import advisor.entities.Playlist;
+import advisor.services.ParserService;
+import advisor.view.CLI;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering of a page of entities the way {@link advisor.view.CLI} outputs it, straight into a writer,
+ * against building the {@link java.lang.Object#toString()} of every entity.
+ * The writer discards its input, so that only the rendering itself is measured.
+ *
+ * @author Alex Giazitzis
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+    @Param({"5", "20", "50"})
+    private int size;
+
+    private final Writer         out = Writer.nullWriter();
+    private       List<Album>    albums;
+    private       List<Playlist> playlists;
+
+    @Setup
+    public void setUp() throws IOException {
+        ParserService service = new ParserService();
+        albums = service.getAlbums(new ByteArrayInputStream(Fixtures.load("new-releases-" + size + ".json")))
+                        .getItems();
+        playlists = service.getPlaylists(new ByteArrayInputStream(Fixtures.load("featured-playlists-" + size +
+                                                                                ".json")))
+                           .getItems();
+    }
+
+    @Benchmark
+    public void renderAlbums() throws IOException {
+        for (Album album : albums) {
+            album.render(out);
+            out.write('\n');
+        }
+        CLI.page(out, 0, 100, size);
+    }
+
+    @Benchmark
+    public void renderPlaylists() throws IOException {
+        for (Playlist playlist : playlists) {
+            playlist.render(out);
+            out.write('\n');
+        }
+        CLI.page(out, 0, 100, size);
+    }
+
+    @Benchmark
+    public void albumsToString(final Blackhole blackhole) {
+        for (Album album : albums) {
+            blackhole.consume(album.toString());
+        }
+        blackhole.consume("---PAGE " + 1 + " OF " + (100 + size - 1) / size + "---");
+    }
+}
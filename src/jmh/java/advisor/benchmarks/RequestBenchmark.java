@@ -0,0 +1,68 @@
+package advisor.benchmarks;
+
+import advisor.utils.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.http.HttpRequest;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building of the requests sent to Spotify, including the ones that look the client keys up.
+ *
+ * @author Alex Giazitzis
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBenchmark {
+    private static final String TOKEN = "BQDzWH6c4w1m0Jh8Nf3Ap2lVJg0yYk2bq7TzX1sRkZPv9dG5eH";
+
+    private HttpRequest featured;
+
+    @Setup
+    public void setUp() {
+        featured = Utils.getRequest.apply(TOKEN, Utils.pagedEndpoint("featured-playlists", 0, 5));
+    }
+
+    @Benchmark
+    public HttpRequest getRequest() {
+        return Utils.getRequest.apply(TOKEN, Utils.pagedEndpoint("featured-playlists", 20, 5));
+    }
+
+    @Benchmark
+    public HttpRequest playlistsRequest() {
+        return Utils.getRequest.apply(TOKEN, Utils.pagedEndpoint(Utils.playlistsEndpoint.apply("toplists"), 0, 5));
+    }
+
+    @Benchmark
+    public HttpRequest conditionalRequest() {
+        return Utils.withHeaders(featured, "If-None-Match", "\"MC0wLTE2OTc1NjQ4MDAwMDA=\"");
+    }
+
+    @Benchmark
+    public HttpRequest authCodeRequest() {
+        return Utils.authCodeRequest.apply("code=AQBv3ZkQ8YhG0sJw5uE2nR7tLx");
+    }
+
+    @Benchmark
+    public HttpRequest refreshTokenRequest() {
+        return Utils.refreshTokenRequest.apply("AQCx7yN2pK9vLm4Qw8sR1tZbF");
+    }
+
+    @Benchmark
+    public String authorizeUrl() {
+        return Utils.urlBuilder.apply(null);
+    }
+}
@@ -1,21 +1,41 @@
 package advisor;
 
+import advisor.controllers.BatchController;
 import advisor.controllers.Controller;
+import advisor.controllers.ServerController;
+import advisor.mock.MockSpotifyServer;
+import advisor.services.PageService;
+import advisor.utils.Events;
+import advisor.utils.Metrics;
 import advisor.view.CLI;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 
 /**
  * @author Alex Giazitzis
  */
 public class Main {
-    public static       String accessPoint   = "https://accounts.spotify.com";
-    public static       String resourcePoint = "https://api.spotify.com";
-    public static       int    pageSize      = 5;
+    public static       String accessPoint     = "https://accounts.spotify.com";
+    public static       String resourcePoint   = "https://api.spotify.com";
+    public static       int    pageSize        = 5;
+    public static       long   cacheSize       = 8L << 20;
+    public static       int    concurrency     = 8;
+    public static       double rate            = 10;
+    public static       double refresh         = 10;
+    public static       double timeout         = 60;
+    public static       String snapshotFile    = System.getProperty("user.home") + "/.music-advisor/snapshot.bin";
+    public static       String credentialsFile = System.getProperty("user.home") +
+                                                 "/.music-advisor/credentials.properties";
+    public static       String storeFile       = System.getProperty("user.home") + "/.music-advisor/catalog.ndjson";
+    public static       String recordFile      = null;
+    public static       String replayFile      = null;
 
     public static void main(String[] args) {
         //Transforms the args array into a list for easier parsing.
-        List<String> arguments = List.of(args);
+        List<String>      arguments = List.of(args);
+        MockSpotifyServer mock      = null;
         if (arguments.contains("-access") && arguments.size() > arguments.indexOf("-access")) {
             accessPoint = arguments.get(arguments.indexOf("-access") + 1);
         }
@@ -28,11 +48,153 @@ public class Main {
             } catch (NumberFormatException ignored) {
                 CLI.update("Falling back to default page size. Page argument is invalid.");
             }
+            if (pageSize < 1) {
+                CLI.update("Falling back to default page size. Page argument is invalid.");
+                pageSize = 5;
+            } else if (pageSize > PageService.MAX_LIMIT) {
+                CLI.update("Page size is capped at " + PageService.MAX_LIMIT + ".");
+                pageSize = PageService.MAX_LIMIT;
+            }
+        }
+        if (arguments.contains("-cache") && arguments.size() > arguments.indexOf("-cache")) {
+            try {
+                cacheSize = Long.parseLong(arguments.get(arguments.indexOf("-cache") + 1)) << 20;
+            } catch (NumberFormatException ignored) {
+                CLI.update("Falling back to default cache size. Cache argument is invalid.");
+            }
+        }
+        if (arguments.contains("-snapshot") && arguments.size() > arguments.indexOf("-snapshot")) {
+            snapshotFile = arguments.get(arguments.indexOf("-snapshot") + 1);
+        }
+        if (arguments.contains("-concurrency") && arguments.size() > arguments.indexOf("-concurrency")) {
+            try {
+                concurrency = Math.max(1, Integer.parseInt(arguments.get(arguments.indexOf("-concurrency") + 1)));
+            } catch (NumberFormatException ignored) {
+                CLI.update("Falling back to default concurrency. Concurrency argument is invalid.");
+            }
+        }
+        if (arguments.contains("-store") && arguments.size() > arguments.indexOf("-store")) {
+            storeFile = arguments.get(arguments.indexOf("-store") + 1);
+        }
+        if (arguments.contains("-refresh") && arguments.size() > arguments.indexOf("-refresh")) {
+            try {
+                refresh = Math.max(0, Double.parseDouble(arguments.get(arguments.indexOf("-refresh") + 1)));
+            } catch (NumberFormatException ignored) {
+                CLI.update("Falling back to default refresh period. Refresh argument is invalid.");
+            }
+        }
+        if (arguments.contains("-timeout") && arguments.size() > arguments.indexOf("-timeout")) {
+            try {
+                timeout = Math.max(0, Double.parseDouble(arguments.get(arguments.indexOf("-timeout") + 1)));
+            } catch (NumberFormatException ignored) {
+                CLI.update("Falling back to default command timeout. Timeout argument is invalid.");
+            }
+        }
+        if (arguments.contains("-rate") && arguments.size() > arguments.indexOf("-rate")) {
+            try {
+                rate = Double.parseDouble(arguments.get(arguments.indexOf("-rate") + 1));
+            } catch (NumberFormatException ignored) {
+                CLI.update("Falling back to default request rate. Rate argument is invalid.");
+            }
+            if (!(rate > 0)) {
+                CLI.update("Falling back to default request rate. Rate argument is invalid.");
+                rate = 10;
+            }
+        }
+        if (arguments.contains("-credentials") && arguments.size() > arguments.indexOf("-credentials")) {
+            credentialsFile = arguments.get(arguments.indexOf("-credentials") + 1);
+        }
+        if (arguments.contains("-record") && arguments.size() > arguments.indexOf("-record")) {
+            recordFile = arguments.get(arguments.indexOf("-record") + 1);
+        }
+        if (arguments.contains("-replay") && arguments.size() > arguments.indexOf("-replay")) {
+            replayFile = arguments.get(arguments.indexOf("-replay") + 1);
+            //Replayed responses cost nothing to Spotify, so they're not held back to the request rate.
+            rate = Double.MAX_VALUE;
+        }
+        if (arguments.contains("-mock") && arguments.size() > arguments.indexOf("-mock")) {
+            try {
+                MockSpotifyServer.Settings settings = MockSpotifyServer.Settings.fromArguments(arguments)
+                        .port(Integer.parseInt(arguments.get(arguments.indexOf("-mock") + 1)));
+                mock = new MockSpotifyServer(settings);
+                mock.start();
+                accessPoint = settings.getUrl();
+                resourcePoint = settings.getUrl();
+                CLI.update("Using the mock Spotify API at " + settings.getUrl() + ".");
+            } catch (NumberFormatException | IOException e) {
+                CLI.update("Could not start the mock Spotify API. Mock argument is invalid.");
+                e.printStackTrace();
+            }
+        }
+        if (arguments.contains("-jfr") && arguments.size() > arguments.indexOf("-jfr")) {
+            try {
+                Events.record(Path.of(arguments.get(arguments.indexOf("-jfr") + 1)));
+            } catch (IOException | IllegalStateException | SecurityException e) {
+                CLI.update("Could not start the flight recording. Jfr argument is invalid.");
+                e.printStackTrace();
+            }
+        }
+        if (arguments.contains("-metrics") && arguments.size() > arguments.indexOf("-metrics")) {
+            try {
+                Metrics.serve(Integer.parseInt(arguments.get(arguments.indexOf("-metrics") + 1)));
+            } catch (NumberFormatException | IOException e) {
+                CLI.update("Could not serve the metrics. Metrics argument is invalid.");
+                e.printStackTrace();
+            }
+        }
+        if (arguments.contains("-serve") && arguments.size() > arguments.indexOf("-serve")) {
+            String executor = "threads";
+            int    threads  = 32;
+            if (arguments.contains("-executor") && arguments.size() > arguments.indexOf("-executor")) {
+                executor = arguments.get(arguments.indexOf("-executor") + 1);
+            }
+            if (arguments.contains("-threads") && arguments.size() > arguments.indexOf("-threads")) {
+                try {
+                    threads = Math.max(1, Integer.parseInt(arguments.get(arguments.indexOf("-threads") + 1)));
+                } catch (NumberFormatException ignored) {
+                    CLI.update("Falling back to default thread count. Threads argument is invalid.");
+                }
+            }
+            try {
+                int port = Integer.parseInt(arguments.get(arguments.indexOf("-serve") + 1));
+                ServerController.run(port, ServerController.executor(executor, threads));
+                Controller.startRefresh();
+                CLI.update("Serving the API on port " + port + ".");
+            } catch (NumberFormatException | IOException e) {
+                CLI.update("Could not start the server. Serve argument is invalid or the port is in use.");
+                e.printStackTrace();
+                stop(mock);
+            }
+            CLI.flush();
+            return;
+        }
+        if (arguments.contains("-batch") && arguments.size() > arguments.indexOf("-batch")) {
+            String format = "text";
+            if (arguments.contains("-format") && arguments.size() > arguments.indexOf("-format")) {
+                format = arguments.get(arguments.indexOf("-format") + 1);
+            }
+            BatchController.run(Path.of(arguments.get(arguments.indexOf("-batch") + 1)), format);
+            stop(mock);
+            return;
         }
 
+        Controller.startRefresh();
         boolean exit = false;
         while (!exit) {
+            CLI.flush();
             exit = Controller.handleUserAction();
         }
+        CLI.flush();
+        stop(mock);
+    }
+
+    /**
+     * Stops the mock and metrics servers if they were started, since their threads would keep the application running.
+     */
+    private static void stop(final MockSpotifyServer mock) {
+        if (mock != null) {
+            mock.stop();
+        }
+        Metrics.stop();
     }
 }
@@ -0,0 +1,459 @@
+package advisor.controllers;
+
+import advisor.Main;
+import advisor.entities.Album;
+import advisor.entities.Category;
+import advisor.entities.MarketAlbum;
+import advisor.entities.Page;
+import advisor.entities.Playlist;
+import advisor.services.CategoryIndex;
+import advisor.services.MarketService;
+import advisor.services.PageService;
+import advisor.utils.Utils;
+import advisor.view.CLI;
+import advisor.view.JsonView;
+import advisor.view.Renderable;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+/**
+ * Runs a script of commands without user interaction, for use in pipelines.
+ * The page every command shows only depends on the commands before it, so every page is requested up front,
+ * in parallel, with the results being written in the order of the script, either as the text the interactive
+ * mode prints or as one JSON record per command (NDJSON). Only {@code next} and {@code prev} wait, for the first
+ * page of the endpoint they page through, as they stay within its pages the way the interactive mode does, and
+ * {@code new --markets}, which merges the new releases of its markets before its pages are sliced from them, and
+ * {@code search}, which waits for the pages of the commands before it so that it searches the same entries
+ * on every run. {@code auth}, {@code crawl} and {@code export} write elsewhere than the output of the script or
+ * wait for the user, so they're reported as only available in the interactive mode.
+ *
+ * @author Alex Giazitzis
+ */
+public class BatchController {
+    private final Writer        out;
+    private final boolean       json;
+    private final Semaphore     permits = new Semaphore(Main.concurrency);
+    private final List<Job>     jobs    = new ArrayList<>();
+    private       CategoryIndex categories;
+
+    private BatchController(final Writer out, final boolean json) {
+        this.out = out;
+        this.json = json;
+    }
+
+    /**
+     * Runs the commands of a script, writing their results to the standard output after the messages shown
+     * before the run, such as the address of the mock API.
+     * @param script - the path of the script, with one command per line.
+     * @param format - either {@code ndjson} for JSON records or {@code text} for the interactive output.
+     */
+    public static void run(final Path script, final String format) {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        CLI.flush();
+        try {
+            new BatchController(out, "ndjson".equalsIgnoreCase(format)).execute(Files.readAllLines(script));
+            out.flush();
+            CLI.flush();
+        } catch (IOException e) {
+            System.err.println("Could not run the batch script.");
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            System.err.println("Batch run was interrupted.");
+            e.printStackTrace();
+        }
+    }
+
+    private void execute(final List<String> lines) throws IOException, InterruptedException {
+        if (!Controller.tokens.isAuthorized()) {
+            write(new Job(0, "auth", "Please, provide access for application."));
+            return;
+        }
+
+        PageService.Parser<Playlist> playlistParser = Controller.service::getPlaylists;
+        PageService.Parser<Album>    albumParser    = Controller.service::getAlbums;
+        PageService.Parser<Category> categoryParser = Controller.service::getCategories;
+        String                       endpoint       = null;
+        PageService.Parser<?>        parser         = null;
+        int                          offset         = 0;
+        Total                        total          = null;
+        List<MarketAlbum>            markets        = List.of();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] input = line.split("\\s+", 2);
+            switch (input[0]) {
+                case "featured":
+                    endpoint = "featured-playlists";
+                    parser = playlistParser;
+                    offset = 0;
+                    total = new Total(submit(i + 1, line, endpoint, offset, parser));
+                    continue;
+                case "new":
+                    if (input.length == 1) {
+                        endpoint = "new-releases";
+                        parser = albumParser;
+                        offset = 0;
+                        total = new Total(submit(i + 1, line, endpoint, offset, parser));
+                        continue;
+                    }
+                    if (!input[1].startsWith("--markets")) {
+                        jobs.add(new Job(i + 1, line, "Invalid option inputted. Try again."));
+                        continue;
+                    }
+                    List<String> selectedMarkets = MarketService.parse(input[1].substring("--markets".length()));
+                    if (selectedMarkets == null) {
+                        jobs.add(new Job(i + 1, line,
+                                         "Provide the markets as country codes, e.g. new --markets US,GB,DE."));
+                        continue;
+                    }
+                    MarketService.Result result = new MarketService(Controller.pages, Controller.service)
+                            .aggregate(selectedMarkets);
+                    if (result.getFailed().size() == selectedMarkets.size()) {
+                        jobs.add(new Job(i + 1, line, "Could not fetch the new releases of: " +
+                                                      String.join(", ", result.getFailed()) + "."));
+                        continue;
+                    }
+                    endpoint = Controller.MARKETS;
+                    offset = 0;
+                    markets = result.getAlbums();
+                    total = new Total(slice(i + 1, line, markets, offset, result.getFailed()));
+                    continue;
+                case "categories":
+                    endpoint = "categories";
+                    parser = categoryParser;
+                    offset = 0;
+                    total = new Total(submit(i + 1, line, endpoint, offset, parser));
+                    continue;
+                case "playlists":
+                    List<Category> selected = selectCategories(i + 1, line, input.length > 1 ? input[1] : "",
+                                                               categoryParser);
+                    for (Category category : selected) {
+                        CompletableFuture<? extends Page<?>> first = submit(
+                                i + 1, line + " [" + category.getName() + "]",
+                                Utils.playlistsEndpoint.apply(category.getId()), 0, playlistParser);
+                        if (selected.size() == 1) {
+                            endpoint = Utils.playlistsEndpoint.apply(category.getId());
+                            parser = playlistParser;
+                            offset = 0;
+                            total = new Total(first);
+                        }
+                    }
+                    continue;
+                case "next":
+                    if (endpoint == null || total.get() < 0) {
+                        break;
+                    }
+                    if (offset + Main.pageSize >= total.get()) {
+                        jobs.add(new Job(i + 1, line, "No more pages."));
+                        continue;
+                    }
+                    offset += Main.pageSize;
+                    break;
+                case "prev":
+                    if (endpoint == null || total.get() < 0) {
+                        break;
+                    }
+                    if (offset == 0) {
+                        jobs.add(new Job(i + 1, line, "No more pages."));
+                        continue;
+                    }
+                    offset = Math.max(0, offset - Main.pageSize);
+                    break;
+                case "search":
+                    search(i + 1, line, input.length > 1 ? input[1] : "");
+                    continue;
+                case "auth":
+                case "crawl":
+                case "export":
+                    jobs.add(new Job(i + 1, line, input[0] + " is only available in the interactive mode."));
+                    continue;
+                case "exit":
+                    i = lines.size();
+                    continue;
+                default:
+                    jobs.add(new Job(i + 1, line, "Invalid option inputted. Try again."));
+                    continue;
+            }
+            if (endpoint == null || total.get() < 0) {
+                jobs.add(new Job(i + 1, line, "No pages to show."));
+            } else if (endpoint.equals(Controller.MARKETS)) {
+                slice(i + 1, line, markets, offset, List.of());
+            } else {
+                submit(i + 1, line, endpoint, offset, parser);
+            }
+        }
+
+        for (Job job : jobs) {
+            write(job);
+        }
+    }
+
+    /**
+     * Resolves the category names of a playlists command, recording an error for each unknown name.
+     */
+    private List<Category> selectCategories(final int line, final String command, final String names,
+                                            final PageService.Parser<Category> categoryParser)
+            throws InterruptedException {
+        List<Category> selected = new ArrayList<>();
+        if (categories == null) {
+            Page<Category> loaded;
+            try {
+                loaded = Controller.pages.fetchEvery("categories", categoryParser).get();
+            } catch (ExecutionException e) {
+                jobs.add(new Job(line, command, "Could not send/receive request/response."));
+                return selected;
+            }
+            if (loaded.hasError()) {
+                jobs.add(new Job(line, command, loaded.getError()));
+                return selected;
+            }
+            categories = new CategoryIndex(loaded.getItems());
+        }
+        if (names.equals("--all")) {
+            return categories.getCategories();
+        }
+        for (String name : names.split(",")) {
+            Category category = categories.find(name);
+            if (category == null) {
+                jobs.add(new Job(line, command, "Unknown category: " + name.trim() + "."));
+            } else {
+                selected.add(category);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Searches the entries parsed so far, once the pages of the commands before it have arrived.
+     */
+    private void search(final int line, final String command, final String terms) throws InterruptedException {
+        if (terms.isEmpty()) {
+            jobs.add(new Job(line, command, "Provide the terms to search for, e.g. search rock*."));
+            return;
+        }
+        for (Job job : jobs) {
+            if (job.page != null) {
+                try {
+                    job.page.get();
+                } catch (ExecutionException e) {
+                    // Reported once the job is written.
+                }
+            }
+        }
+        List<Object> found = Controller.search.search(terms, Controller.SEARCH_LIMIT);
+        if (found.isEmpty()) {
+            jobs.add(new Job(line, command, "No matches among the " + Controller.search.size() + " indexed entries."));
+        } else {
+            jobs.add(new Job(line, command, found));
+        }
+    }
+
+    /**
+     * Requests a page in the background, waiting only while the maximum amount of requests are in flight.
+     */
+    private CompletableFuture<? extends Page<?>> submit(final int line, final String command, final String endpoint,
+                                                        final int offset, final PageService.Parser<?> parser)
+            throws InterruptedException {
+        permits.acquire();
+        CompletableFuture<? extends Page<?>> page = Controller.pages.fetch(endpoint, offset, Main.pageSize, parser);
+        page.whenComplete((result, e) -> permits.release());
+        jobs.add(new Job(line, command, page));
+        return page;
+    }
+
+    /**
+     * Shows a page of the merged new releases of many markets, which are held in memory instead of requested,
+     * along with the markets whose new releases could not be fetched.
+     */
+    private CompletableFuture<? extends Page<?>> slice(final int line, final String command,
+                                                       final List<MarketAlbum> markets, final int offset,
+                                                       final List<String> failed) {
+        CompletableFuture<? extends Page<?>> page = CompletableFuture.completedFuture(
+                Page.slice(markets, offset, Main.pageSize));
+        jobs.add(new Job(line, command, page, failed));
+        return page;
+    }
+
+    private void write(final Job job) throws IOException, InterruptedException {
+        if (job.found != null) {
+            writeFound(job);
+            return;
+        }
+
+        String  error = job.error;
+        Page<?> page  = null;
+        if (error == null) {
+            try {
+                page = job.page.get();
+                if (page.hasError()) {
+                    error = page.getError();
+                } else if (page.getOffset() > 0 && page.getOffset() >= page.getTotal()) {
+                    error = "No more pages.";
+                }
+            } catch (ExecutionException e) {
+                error = "Could not send/receive request/response.";
+            }
+        }
+
+        if (!json) {
+            if (error != null) {
+                out.write(error + "\n");
+                return;
+            }
+            if (!job.failed.isEmpty()) {
+                out.write("Could not fetch the new releases of: " + String.join(", ", job.failed) + ".\n");
+            }
+            for (Object item : page.getItems()) {
+                ((Renderable) item).render(out);
+                out.write('\n');
+            }
+            CLI.page(out, page.getOffset(), page.getTotal(), Main.pageSize);
+            out.write('\n');
+            return;
+        }
+
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginObject();
+        writer.name("line").value(job.line);
+        writer.name("command").value(job.command);
+        if (error != null) {
+            writer.name("status").value("error");
+            writer.name("error").value(error);
+        } else {
+            writer.name("status").value("ok");
+            if (!job.failed.isEmpty()) {
+                writer.name("failed").beginArray();
+                for (String market : job.failed) {
+                    writer.value(market);
+                }
+                writer.endArray();
+            }
+            JsonView.writePage(writer, page);
+        }
+        writer.endObject();
+        out.write("\n");
+    }
+
+    /**
+     * Writes the matches of a search, grouped by type as the interactive mode shows them.
+     */
+    private void writeFound(final Job job) throws IOException {
+        if (!json) {
+            for (Class<?> type : List.of(Album.class, Playlist.class, Category.class)) {
+                List<Object> ofType = job.found.stream().filter(type::isInstance).collect(Collectors.toList());
+                if (!ofType.isEmpty()) {
+                    out.write("---" + type.getSimpleName().toUpperCase() + "S---\n");
+                    for (Object item : ofType) {
+                        ((Renderable) item).render(out);
+                        out.write('\n');
+                    }
+                }
+            }
+            if (job.found.size() == Controller.SEARCH_LIMIT) {
+                out.write("Showing the first " + Controller.SEARCH_LIMIT +
+                          " matches. Add terms to narrow the search.\n");
+            }
+            return;
+        }
+
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginObject();
+        writer.name("line").value(job.line);
+        writer.name("command").value(job.command);
+        writer.name("status").value("ok");
+        writer.name("items").beginArray();
+        for (Object item : job.found) {
+            JsonView.writeEntity(writer, item);
+        }
+        writer.endArray();
+        writer.endObject();
+        out.write("\n");
+    }
+
+    /**
+     * The total amount of items of the endpoint being paged through, learned from its first page once needed.
+     */
+    private static class Total {
+        private final CompletableFuture<? extends Page<?>> first;
+        private       Integer                              total;
+
+        private Total(final CompletableFuture<? extends Page<?>> first) {
+            this.first = first;
+        }
+
+        /**
+         * @return the total amount of items, or -1 if the first page could not be fetched.
+         */
+        private int get() throws InterruptedException {
+            if (total == null) {
+                try {
+                    Page<?> page = first.get();
+                    total = page.hasError() ? -1 : page.getTotal();
+                } catch (ExecutionException e) {
+                    total = -1;
+                }
+            }
+            return total;
+        }
+    }
+
+    /**
+     * A command of the script, with either the page it shows, the matches of a search or the error it resulted in.
+     * The page of {@code new --markets} also carries the markets whose new releases could not be fetched.
+     */
+    private static class Job {
+        private final int                                  line;
+        private final String                               command;
+        private final CompletableFuture<? extends Page<?>> page;
+        private final List<String>                         failed;
+        private final List<Object>                         found;
+        private final String                               error;
+
+        private Job(final int line, final String command, final CompletableFuture<? extends Page<?>> page) {
+            this(line, command, page, List.of());
+        }
+
+        private Job(final int line, final String command, final CompletableFuture<? extends Page<?>> page,
+                    final List<String> failed) {
+            this.line = line;
+            this.command = command;
+            this.page = page;
+            this.failed = failed;
+            this.found = null;
+            this.error = null;
+        }
+
+        private Job(final int line, final String command, final List<Object> found) {
+            this.line = line;
+            this.command = command;
+            this.page = null;
+            this.failed = List.of();
+            this.found = found;
+            this.error = null;
+        }
+
+        private Job(final int line, final String command, final String error) {
+            this.line = line;
+            this.command = command;
+            this.page = null;
+            this.failed = List.of();
+            this.found = null;
+            this.error = error;
+        }
+    }
+}
@@ -3,65 +3,246 @@ package advisor.controllers;
 import advisor.Main;
 import advisor.entities.Album;
 import advisor.entities.Category;
+import advisor.entities.MarketAlbum;
+import advisor.entities.Page;
 import advisor.entities.Playlist;
+import advisor.services.CatalogService;
+import advisor.services.CatalogStore;
+import advisor.services.CategoryIndex;
+import advisor.services.CrawlService;
+import advisor.services.ExportService;
+import advisor.services.MarketService;
+import advisor.services.PageService;
 import advisor.services.ParserService;
+import advisor.services.RequestScheduler;
+import advisor.services.ResponseCache;
+import advisor.services.SearchIndex;
+import advisor.services.SnapshotService;
+import advisor.services.TokenService;
+import advisor.utils.ArchiveHttpClient;
+import advisor.utils.Events;
 import advisor.utils.HttpHandlerWithLatch;
+import advisor.utils.Metrics;
 import advisor.utils.Utils;
 import advisor.view.CLI;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import com.sun.net.httpserver.HttpServer;
 
 import java.io.IOException;
 import java.net.BindException;
 import java.net.InetSocketAddress;
 import java.net.http.HttpClient;
-import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 /**
  * Controls the flow of the program by processing the user's input
  * and updating the program's View.
  *
+ * <p>The user's input is read by a thread of its own, so the user can type ahead while a command runs: commands
+ * run one at a time in the background, in the order they were typed, while {@code cancel} stops the running
+ * command as soon as it's typed. Commands that run for longer than the {@code -timeout} are cancelled,
+ * apart from {@code auth}, {@code crawl} and {@code export}, which wait for the user or have budgets of their own.
+ *
  * @see advisor.view.CLI
  * @author Alex Giazitzis
  */
 public class Controller {
-    private static final Scanner        scanner    = new Scanner(System.in);
-    private static final ParserService  service    = new ParserService();
-    private static       boolean        authed     = false;
-    private static       String         authCode;
-    private static final CountDownLatch latch      = new CountDownLatch(1);
-    private static final HttpClient     client     = HttpClient.newBuilder().build();
-    private static       Action         lastAction;
-    private static       String         playlist;
-    private static       int            offset     = 0;
-    private static final List<Album>    albums     = new ArrayList<>();
-    private static final List<Category> categories = new ArrayList<>();
-    private static final List<Playlist> playlists  = new ArrayList<>();
+    static final         int         SEARCH_LIMIT = 50;
+    static final         String      MARKETS      = "new-releases?markets";
+    private static final long        SPIN_MILLIS  = 100;
+    private static final String      SPINNER      = "|/-\\";
+    private static final Set<String> UNTIMED      = Set.of("auth", "crawl", "export");
+
+    private static final Scanner               scanner    = new Scanner(System.in);
+    private static final BlockingQueue<String> lines      = new LinkedBlockingQueue<>();
+    private static final Deque<String>         typedAhead = new ArrayDeque<>();
+    private static final ExecutorService       commands   = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "command");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static       Thread                reader;
+    static final         SearchIndex           search     = new SearchIndex();
+    static final         ParserService         service    = new ParserService(search);
+    static final         HttpClient            client     = archive(Utils.newHttpClient(Main.concurrency));
+    static final         TokenService          tokens     = new TokenService(client, Path.of(Main.credentialsFile));
+    static final         RequestScheduler      scheduler  = new RequestScheduler(client, Main.rate,
+                                                                                 Main.concurrency, 4);
+    static final         ResponseCache         cache      = new ResponseCache(Main.cacheSize);
+    static final         PageService           pages      = new PageService(scheduler, tokens, cache);
+    static final         CatalogService        catalogs   = new CatalogService(pages, service, tokens);
+    private static final PageService           crawls     = new PageService(scheduler, tokens,
+                                                                            new ResponseCache(Main.cacheSize));
+    private static final SnapshotService       snapshots  = new SnapshotService(Path.of(Main.snapshotFile));
+    private static       String                lastEndpoint;
+    private static       PageService.Parser<?> lastParser;
+    private static       int                   offset     = 0;
+    private static       int                   total      = 0;
+    private static       List<MarketAlbum>     markets    = List.of();
+
+    static {
+        try {
+            snapshots.load(cache);
+            cache.entries().values().forEach(entry -> search.addAll(entry.getPage().getItems()));
+        } catch (IOException e) {
+            CLI.update("Could not load the catalog snapshot.");
+            e.printStackTrace();
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(Controller::saveSnapshot));
+        Runtime.getRuntime().addShutdownHook(new Thread(Controller::closeArchive));
+        try {
+            tokens.load();
+        } catch (IOException e) {
+            CLI.update("Could not reuse the stored credentials. Provide access again.");
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            CLI.update("Thread interrupted while refreshing the stored credentials.");
+            e.printStackTrace();
+        }
+        if (tokens.isAuthorized()) {
+            Utils.preconnect(client, Main.resourcePoint);
+        }
+    }
 
     /**
-     * Handles the user's input based on implemented commands.
+     * Starts refreshing the catalog every {@code -refresh} minutes, for the runs that browse it for long:
+     * the interactive one and the server. Batch runs only read what their script asks for, and replays only
+     * what was recorded, so neither refreshes the catalog.
+     */
+    public static void startRefresh() {
+        if (Main.replayFile != null) {
+            return;
+        }
+        catalogs.start(Duration.ofMillis((long) (Main.refresh * 60_000)));
+    }
+
+    /**
+     * Handles the user's next command based on implemented commands, waiting for it to complete or be cancelled.
      * @return true if the user wants to exit, false otherwise.
      */
     public static boolean handleUserAction() {
-        String[] input = scanner.nextLine().split("\\s");
+        String line;
+        try {
+            line = nextLine();
+        } catch (InterruptedException e) {
+            return true;
+        }
+        String[] input = line.split("\\s");
 
         switch (input[0]) {
-            case "auth":
-                handleAuth();
-                return false;
             case "exit":
                 CLI.update("---GOODBYE!---");
                 return true;
+            case "cancel":
+                CLI.update("No command to cancel.");
+                return false;
             default:
-                handle(input);
+                run(input);
                 return false;
         }
+    }
 
+    /**
+     * Takes the next line the user typed, starting the thread that reads the user's input on first use.
+     * The end of the input is read as {@code exit}.
+     */
+    private static String nextLine() throws InterruptedException {
+        if (reader == null) {
+            reader = new Thread(() -> {
+                try {
+                    while (true) {
+                        lines.add(scanner.nextLine());
+                    }
+                } catch (NoSuchElementException | IllegalStateException e) {
+                    lines.add("exit");
+                }
+            }, "input-reader");
+            reader.setDaemon(true);
+            reader.start();
+        }
+        return typedAhead.isEmpty() ? lines.take() : typedAhead.poll();
+    }
+
+    /**
+     * Runs a command in the background, holding the lines typed meanwhile back for later, apart from
+     * {@code cancel}, which cancels the command. Shows a spinner on a terminal while the command runs.
+     */
+    private static void run(final String[] input) {
+        Events.Command event = new Events.Command();
+        event.begin();
+        event.command = String.join(" ", input);
+        event.outcome = "completed";
+        Future<?> task     = commands.submit(() -> {
+            if (input[0].equals("auth")) {
+                handleAuth();
+            } else {
+                handle(input);
+            }
+        });
+        long      start    = System.nanoTime();
+        long      deadline = Main.timeout > 0 && !UNTIMED.contains(input[0])
+                             ? start + (long) (Main.timeout * 1e9) : Long.MAX_VALUE;
+        boolean   spin     = System.console() != null;
+        for (int frame = 0; ; frame++) {
+            try {
+                task.get(SPIN_MILLIS, TimeUnit.MILLISECONDS);
+                break;
+            } catch (TimeoutException e) {
+                String line;
+                while ((line = lines.poll()) != null) {
+                    if (line.trim().equals("cancel")) {
+                        task.cancel(true);
+                        event.outcome = "cancelled";
+                        CLI.update("Cancelled " + input[0] + ".");
+                    } else {
+                        typedAhead.add(line);
+                    }
+                }
+                if (!task.isDone() && System.nanoTime() > deadline) {
+                    task.cancel(true);
+                    event.outcome = "timed out";
+                    CLI.update(String.format("Cancelled %s as it ran for longer than %.0fs.", input[0], Main.timeout));
+                }
+                if (!task.isDone() && spin && frame >= 2) {
+                    CLI.progress(String.format("%c %s %.1fs (cancel to stop)", SPINNER.charAt(frame % 4), input[0],
+                                               (System.nanoTime() - start) / 1e9));
+                }
+            } catch (CancellationException e) {
+                break;
+            } catch (ExecutionException e) {
+                event.outcome = "failed";
+                CLI.update("Command failed.");
+                e.getCause().printStackTrace();
+                break;
+            } catch (InterruptedException e) {
+                task.cancel(true);
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        CLI.clearProgress();
+        event.commit();
     }
 
     private static void handleAuth() {
@@ -82,11 +263,15 @@ public class Controller {
             CLI.update("Unable to connect.");
             return;
         }
-        server.createContext("/", new HttpHandlerWithLatch(latch));
+        CountDownLatch       latch   = new CountDownLatch(1);
+        HttpHandlerWithLatch handler = new HttpHandlerWithLatch(latch);
+        server.createContext("/", handler);
 
+        Utils.preconnect(client, Main.accessPoint, Main.resourcePoint);
         CLI.update("use this link to request the access code:");
         CLI.update(Utils.urlBuilder.apply(null));
         CLI.update("waiting for code...");
+        CLI.flush();
 
         server.start();
         try {
@@ -96,49 +281,38 @@ public class Controller {
             e.printStackTrace();
             return;
         } catch (InterruptedException e) {
-            CLI.update("Thread interrupted before latch countdown.");
-            e.printStackTrace();
-            return;
-        }
-
-        String query = HttpHandlerWithLatch.query;
-
-        if (query.contains("error=")) {
-            CLI.update("Authorization failed. Try again.");
-            //CLI.update(query);
+            Thread.currentThread().interrupt();
             return;
+        } finally {
+            server.stop(1);
         }
 
         CLI.update("code received");
-        server.stop(1);
         CLI.update("Making http request for access_token...");
 
-        String responseBody;
         try {
-            responseBody = client.send(Utils.authCodeRequest.apply(query), HttpResponse.BodyHandlers.ofString()).body();
+            tokens.authorize(handler.getQuery());
         } catch (IOException e) {
             CLI.update("Could not send/receive request/response.");
             e.printStackTrace();
             return;
         } catch (InterruptedException e) {
-            CLI.update("Client was interrupted.");
-            e.printStackTrace();
+            Thread.currentThread().interrupt();
             return;
         }
 
         CLI.update("Success!");
-        authed = true;
-        authCode = Utils.authCodeRetriever.apply(responseBody);
+        catalogs.refreshSoon();
     }
 
     private static void handle(final String[] input) {
-        if (authed) {
+        if (tokens.isAuthorized()) {
             switch (input[0]) {
                 case "featured":
                     showFeatured();
                     return;
                 case "new":
-                    showNew();
+                    showNew(input);
                     return;
                 case "categories":
                     showCategories();
@@ -152,6 +326,15 @@ public class Controller {
                 case "prev":
                     prev();
                     return;
+                case "crawl":
+                    crawl(input);
+                    return;
+                case "search":
+                    search(input);
+                    return;
+                case "export":
+                    export(input);
+                    return;
                 default:
                     CLI.update("Invalid option inputted. Try again.");
                     return;
@@ -161,237 +344,438 @@ public class Controller {
     }
 
     private static void showFeatured() {
+        browse("featured-playlists", service::getPlaylists);
+    }
 
-        HttpResponse<String> featuredList;
-        try {
-            featuredList = client.send(Utils.getRequest.apply(authCode, "featured-playlists"),
-                                       HttpResponse.BodyHandlers.ofString());
-        } catch (IOException e) {
-            CLI.update("Could not send/receive request/response.");
-            e.printStackTrace();
+    private static void showNew(final String[] input) {
+        String arguments = String.join(" ", input).substring("new".length()).trim();
+        if (arguments.isEmpty()) {
+            browse("new-releases", service::getAlbums);
+        } else if (arguments.startsWith("--markets")) {
+            showMarkets(arguments.substring("--markets".length()));
+        } else {
+            CLI.update("Invalid option inputted. Try again.");
+        }
+    }
+
+    /**
+     * Fetches the new releases of many markets concurrently and shows them merged into one list,
+     * ranked by the amount of markets every album was released in.
+     * @param codes - a comma separated list of ISO 3166-1 alpha-2 country codes.
+     */
+    private static void showMarkets(final String codes) {
+        List<String> selected = MarketService.parse(codes);
+        if (selected == null) {
+            CLI.update("Provide the markets as country codes, e.g. new --markets US,GB,DE.");
             return;
+        }
+
+        MarketService.Result result;
+        try {
+            result = new MarketService(pages, service).aggregate(selected);
         } catch (InterruptedException e) {
-            CLI.update("Client was interrupted.");
-            e.printStackTrace();
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (!result.getFailed().isEmpty()) {
+            CLI.update("Could not fetch the new releases of: " + String.join(", ", result.getFailed()) + ".");
+        }
+        if (result.getFailed().size() == selected.size()) {
             return;
         }
+        CLI.update(String.format("Merged %d albums from %d markets in %.1fs.", result.getAlbums().size(),
+                                 selected.size() - result.getFailed().size(),
+                                 result.getElapsed().toMillis() / 1000.0));
+        markets = result.getAlbums();
+        browse(MARKETS, service::getAlbums);
+    }
 
-        if (getPlaylistOutput(featuredList)) return;
+    private static void showCategories() {
+        browse("categories", service::getCategories);
+    }
 
-        lastAction = Action.FEATURED;
+    private static void showPlaylists(final String[] input) {
+        if (catalogs.get().getCategories().isEmpty() && !getCategories()) {
+            return;
+        }
+        String playlist = String.join(" ", input).trim().replace("playlists ", "");
+        if (playlist.equals("--all") || playlist.contains(",")) {
+            showAllPlaylists(playlist);
+            return;
+        }
+        Category category = findCategory(playlist);
+        if (category != null) {
+            browse(Utils.playlistsEndpoint.apply(category.getId()), service::getPlaylists);
+        }
     }
 
-    private static void showNew() {
-        if (albums.isEmpty()) {
-            HttpResponse<String> newList;
-            try {
-                newList = client.send(Utils.getRequest.apply(authCode, "new-releases"),
-                                      HttpResponse.BodyHandlers.ofString());
-            } catch (IOException e) {
-                CLI.update("Could not send/receive request/response.");
-                e.printStackTrace();
-                return;
-            } catch (InterruptedException e) {
-                CLI.update("Client was interrupted.");
-                e.printStackTrace();
-                return;
+    /**
+     * Fetches the first page of playlists of many categories in parallel, showing each as soon as it arrives.
+     * @param names - either {@code --all} or a comma separated list of category names.
+     */
+    private static void showAllPlaylists(final String names) {
+        Map<String, Category> selected = new LinkedHashMap<>();
+        if (names.equals("--all")) {
+            catalogs.get().getCategories().getCategories()
+                    .forEach(c -> selected.put(Utils.playlistsEndpoint.apply(c.getId()), c));
+        } else {
+            for (String name : names.split(",")) {
+                Category category = findCategory(name);
+                if (category != null) {
+                    selected.put(Utils.playlistsEndpoint.apply(category.getId()), category);
+                }
             }
+        }
 
-            if (hasError(newList)) {
-                CLI.update(service.getErrorMessage(newList.body()));
-                return;
-            }
+        try {
+            pages.fetchAll(new ArrayList<>(selected.keySet()), 0, Main.pageSize, service::getPlaylists,
+                           Main.concurrency, (endpoint, page, e) -> {
+                               Events.PageRender render = new Events.PageRender();
+                               render.begin();
+                               long   start  = System.nanoTime();
+                               String header = "---" + selected.get(endpoint).getName().toUpperCase() + "---";
+                               if (e != null) {
+                                   CLI.update(header, "Could not send/receive request/response.");
+                               } else if (page.hasError()) {
+                                   CLI.update(header, page.getError());
+                               } else {
+                                   List<Object> output = new ArrayList<>(page.getItems());
+                                   output.add(0, header);
+                                   CLI.update(output.toArray());
+                               }
+                               CLI.flush();
+                               Metrics.time(Metrics.Metric.RENDER, Metrics.endpoint(endpoint), start);
+                               render.endpoint = Metrics.endpoint(endpoint);
+                               render.items = page == null ? 0 : page.getItems().size();
+                               render.commit();
+                           }).get();
+        } catch (ExecutionException e) {
+            CLI.update("Could not send/receive request/response.");
+            e.getCause().printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-            albums.addAll(service.getAlbums(newList.body()));
+    /**
+     * Looks a category up by name, suggesting the closest category names if none matches.
+     * @return the category with the given name, or null if there is none.
+     */
+    private static Category findCategory(final String name) {
+        CategoryIndex categories = catalogs.get().getCategories();
+        Category      category   = categories.find(name);
+        if (category == null) {
+            String suggestions = categories.suggest(name, 3).stream()
+                                           .map(Category::getName)
+                                           .collect(Collectors.joining(", "));
+            CLI.update("Unknown category: " + name.trim() +
+                       (suggestions.isEmpty() ? "." : ". Did you mean: " + suggestions + "?"));
         }
-        CLI.update(albums.subList(offset, offset + Main.pageSize));
-        CLI.update("---PAGE " + (offset / Main.pageSize + 1) + " OF " + (albums.size() % Main.pageSize == 0
-                                                                         ? albums.size() / Main.pageSize
-                                                                         : albums.size() / Main.pageSize + 1) + "---");
+        return category;
+    }
 
-        lastAction = Action.NEW;
+    /**
+     * Loads every category and indexes them so that playlists can be looked up by category name.
+     * @return true if all categories were loaded, false otherwise.
+     */
+    private static boolean getCategories() {
+        Page<Category> loaded = await(pages.fetchEvery("categories", service::getCategories));
+        if (loaded == null) {
+            return false;
+        }
+        if (loaded.hasError()) {
+            CLI.update(loaded.getError());
+            return false;
+        }
+        catalogs.putCategories(loaded.getItems());
+        return true;
     }
 
-    private static void showCategories() {
-        if (categories.isEmpty()) {
-            getCategories();
+    /**
+     * Starts browsing an endpoint from its first page.
+     */
+    private static <T> void browse(final String endpoint, final PageService.Parser<T> parser) {
+        if (showPage(endpoint, parser, 0)) {
+            lastEndpoint = endpoint;
+            lastParser = parser;
+        }
+    }
+
+    /**
+     * Shows the page starting at the given offset and prefetches the one that follows it.
+     * The merged new releases of many markets are held in memory, so their pages are sliced instead.
+     * @return true if the page was shown, false otherwise.
+     */
+    private static <T> boolean showPage(final String endpoint, final PageService.Parser<T> parser, final int from) {
+        Page<?> page = endpoint.equals(MARKETS) ? Page.slice(markets, from, Main.pageSize)
+                                                : await(catalogs.fetch(endpoint, from, Main.pageSize, parser));
+        if (page == null) {
+            return false;
         }
-        CLI.update(categories.subList(offset, offset + Main.pageSize).toArray());
-        CLI.update("---PAGE " + (offset / Main.pageSize + 1) + " OF " + (categories.size() % Main.pageSize == 0
-                                                                         ? categories.size() / Main.pageSize
-                                                                         : categories.size() / Main.pageSize + 1) +
-                   "---");
+        if (page.hasError()) {
+            CLI.update(page.getError());
+            return false;
+        }
+        offset = from;
+        total = page.getTotal();
+        long              start  = System.nanoTime();
+        Events.PageRender render = new Events.PageRender();
+        render.begin();
+        CLI.update(page.getItems().toArray());
+        CLI.page(offset, total, Main.pageSize);
+        CLI.flush();
+        Metrics.time(Metrics.Metric.RENDER, Metrics.endpoint(endpoint), start);
+        render.endpoint = Metrics.endpoint(endpoint);
+        render.offset = offset;
+        render.items = page.getItems().size();
+        render.commit();
+        if (offset + Main.pageSize < total && !endpoint.equals(MARKETS)) {
+            catalogs.prefetch(endpoint, offset + Main.pageSize, Main.pageSize, parser);
+        }
+        return true;
+    }
 
-        lastAction = Action.CATEGORIES;
+    /**
+     * Searches the albums, artists, playlists and categories parsed so far, showing the matches grouped by type.
+     */
+    private static void search(final String[] input) {
+        String terms = String.join(" ", input).substring("search".length()).trim();
+        if (terms.isEmpty()) {
+            CLI.update("Provide the terms to search for, e.g. search rock*.");
+            return;
+        }
+        List<Object> found = search.search(terms, SEARCH_LIMIT);
+        if (found.isEmpty()) {
+            CLI.update("No matches among the " + search.size() + " indexed entries.");
+            return;
+        }
+        for (Class<?> type : List.of(Album.class, Playlist.class, Category.class)) {
+            List<Object> ofType = found.stream().filter(type::isInstance).collect(Collectors.toList());
+            if (!ofType.isEmpty()) {
+                ofType.add(0, "---" + type.getSimpleName().toUpperCase() + "S---");
+                CLI.update(ofType.toArray());
+            }
+        }
+        if (found.size() == SEARCH_LIMIT) {
+            CLI.update("Showing the first " + SEARCH_LIMIT + " matches. Add terms to narrow the search.");
+        }
     }
 
-    private static void getCategories() {
-        HttpResponse<String> categoriesList;
-        try {
-            categoriesList = client.send(Utils.getRequest.apply(authCode, "categories"),
-                                         HttpResponse.BodyHandlers.ofString());
+    /**
+     * Exports every item of the featured playlists, the new releases, the categories, the playlists of a category
+     * or all of them into a file, writing each page as it arrives.
+     */
+    private static void export(final String[] input) {
+        List<String> target = new ArrayList<>();
+        String       format = "ndjson";
+        String       file   = null;
+        for (int i = 1; i < input.length; i++) {
+            if (input[i].equals("-format") && i + 1 < input.length) {
+                format = input[++i].toLowerCase();
+            } else if (input[i].equals("-out") && i + 1 < input.length) {
+                file = input[++i];
+            } else if (!input[i].isEmpty()) {
+                target.add(input[i]);
+            }
+        }
+        String what = String.join(" ", target);
+        if (file == null || target.isEmpty() || !(format.equals("ndjson") || format.equals("csv")) ||
+            !(target.get(0).equals("playlists") && target.size() > 1 ||
+              List.of("featured", "new", "categories", "all").contains(what))) {
+            CLI.update("Invalid export. Use export <featured|new|categories|playlists NAME|all> " +
+                       "-format ndjson|csv -out FILE.");
+            return;
+        }
+        Category category = null;
+        if (target.get(0).equals("playlists")) {
+            if (catalogs.get().getCategories().isEmpty() && !getCategories()) {
+                return;
+            }
+            category = findCategory(String.join(" ", target.subList(1, target.size())));
+            if (category == null) {
+                return;
+            }
+        }
+
+        CLI.update("Exporting " + what + " into " + file + "...");
+        CLI.flush();
+        int      rows;
+        int      failed;
+        Duration elapsed;
+        try (ExportService export = new ExportService(pages, Path.of(file), format, Main.concurrency)) {
+            switch (target.get(0)) {
+                case "featured":
+                    export.exportFeatured();
+                    break;
+                case "new":
+                    export.exportNew();
+                    break;
+                case "categories":
+                    export.exportCategories();
+                    break;
+                case "playlists":
+                    export.exportPlaylists(category);
+                    break;
+                default:
+                    export.exportAll();
+            }
+            rows = export.getRows();
+            failed = export.getFailed();
+            elapsed = export.getElapsed();
         } catch (IOException e) {
-            CLI.update("Could not send/receive request/response.");
+            CLI.update("Could not write the export file.");
             e.printStackTrace();
             return;
         } catch (InterruptedException e) {
-            CLI.update("Client was interrupted.");
-            e.printStackTrace();
+            Thread.currentThread().interrupt();
             return;
         }
-
-        if (hasError(categoriesList)) {
-            CLI.update(service.getErrorMessage(categoriesList.body()));
-            return;
+        CLI.update("Exported " + rows + " rows in " + elapsed.toMillis() / 1000.0 + "s.");
+        if (failed > 0) {
+            CLI.update(failed + " pages could not be fetched and are missing from the export.");
         }
-        categories.addAll(service.getCategories(categoriesList.body()));
     }
 
-    private static void showPlaylists(final String[] input) {
-        if (categories.isEmpty()) {
-            getCategories();
+    /**
+     * Crawls the whole catalog into the local store, with the options
+     * {@code --concurrency N} for the pages in flight and {@code --budget MINUTES} for the time to stop after.
+     */
+    private static void crawl(final String[] input) {
+        int      concurrency = Main.concurrency;
+        Duration budget      = null;
+        try {
+            for (int i = 1; i + 1 < input.length; i += 2) {
+                if (input[i].equals("--concurrency")) {
+                    concurrency = Math.max(1, Integer.parseInt(input[i + 1]));
+                } else if (input[i].equals("--budget")) {
+                    budget = Duration.ofMillis((long) (Double.parseDouble(input[i + 1]) * 60_000));
+                }
+            }
+        } catch (NumberFormatException e) {
+            CLI.update("Invalid crawl option. Use crawl [--concurrency N] [--budget MINUTES].");
+            return;
         }
-        playlist = String.join(" ", input).trim().replace("playlists ", "");
-        String categoryId = categories.stream()
-                                      .filter(c -> c.getName().equalsIgnoreCase(playlist))
-                                      .findFirst()
-                                      .orElse(new Category("none", "none"))
-                                      .getId();
 
-        HttpResponse<String> playlistList;
-        try {
-            playlistList = client.send(Utils.getPlaylistRequest.apply(authCode, categoryId),
-                                       HttpResponse.BodyHandlers.ofString());
+        CLI.update("Crawling the catalog into " + Main.storeFile + "...");
+        CLI.flush();
+        CrawlService.Result result;
+        long                wire    = Metrics.total(Metrics.Metric.BYTES);
+        long                decoded = Metrics.total(Metrics.Metric.DECODED_BYTES);
+        try (CatalogStore store = new CatalogStore(Path.of(Main.storeFile))) {
+            store.open();
+            result = new CrawlService(crawls, service).crawl(store, concurrency, budget);
         } catch (IOException e) {
-            CLI.update("Could not send/receive request/response.");
+            CLI.update("Could not write the catalog store.");
             e.printStackTrace();
             return;
         } catch (InterruptedException e) {
-            CLI.update("Client was interrupted.");
-            e.printStackTrace();
+            Thread.currentThread().interrupt();
             return;
         }
-
-        if (getPlaylistOutput(playlistList)) return;
-
-        lastAction = Action.PLAYLISTS;
-    }
-
-    private static boolean getPlaylistOutput(final HttpResponse<String> playlistList) {
-        if (hasError(playlistList)) {
-            CLI.update(service.getErrorMessage(playlistList.body()));
-            return true;
+        CLI.update("Crawled " + result.getPages() + " pages in " + result.getElapsed().toMillis() / 1000.0 + "s: " +
+                   result.getChanged() + " new or changed playlists, " + result.getUnchanged() + " unchanged, " +
+                   result.getAlbums() + " new albums.");
+        if (result.getFailed() > 0) {
+            CLI.update(result.getFailed() + " pages could not be fetched.");
+        }
+        if (result.getSkipped() > 0) {
+            CLI.update(result.getSkipped() + " pages were skipped as the time budget ran out.");
+        }
+        wire = Metrics.total(Metrics.Metric.BYTES) - wire;
+        decoded = Metrics.total(Metrics.Metric.DECODED_BYTES) - decoded;
+        if (wire > 0 && decoded > wire) {
+            CLI.update(String.format("Received %.1f KB for %.1f KB of JSON (%.1fx smaller).",
+                                     wire / 1024.0, decoded / 1024.0, (double) decoded / wire));
         }
-        playlists.clear();
-        playlists.addAll(service.getPlaylists(playlistList.body()));
-        CLI.update(playlists.subList(offset, offset + Main.pageSize));
-        CLI.update("---PAGE " + (offset / Main.pageSize + 1) + " OF " + (playlists.size() % Main.pageSize == 0
-                                                                         ? playlists.size() / Main.pageSize
-                                                                         : playlists.size() / Main.pageSize + 1) +
-                   "---");
-        return false;
     }
 
     private static void next() {
-        switch (lastAction) {
-            case FEATURED:
-                if (checkOutOfBound(Action.FEATURED)) {
-                    CLI.update("No more pages.");
-                    return;
-                }
-                modifyOffset(1);
-                showFeatured();
-                return;
-            case NEW:
-                if (checkOutOfBound(Action.NEW)) {
-                    CLI.update("No more pages.");
-                    return;
-                }
-                modifyOffset(1);
-                showNew();
-                return;
-            case CATEGORIES:
-                if (checkOutOfBound(Action.CATEGORIES)) {
-                    CLI.update("No more pages.");
-                    return;
-                }
-                modifyOffset(1);
-                showCategories();
-                return;
-            case PLAYLISTS:
-                if (checkOutOfBound(Action.FEATURED)) {
-                    CLI.update("No more pages.");
-                    return;
-                }
-                modifyOffset(1);
-                showPlaylists(new String[]{playlist});
-                return;
-            default:
-                CLI.update("No pages to show.");
+        if (lastEndpoint == null) {
+            CLI.update("No pages to show.");
+            return;
         }
+        if (offset + Main.pageSize >= total) {
+            CLI.update("No more pages.");
+            return;
+        }
+        showPage(lastEndpoint, lastParser, offset + Main.pageSize);
     }
 
     private static void prev() {
+        if (lastEndpoint == null) {
+            CLI.update("No pages to show.");
+            return;
+        }
         if (offset == 0) {
             CLI.update("No more pages.");
             return;
         }
-        modifyOffset(-1);
-        switch (lastAction) {
-            case FEATURED:
-                showFeatured();
-                return;
-            case NEW:
-                showNew();
-                return;
-            case CATEGORIES:
-                showCategories();
-                return;
-            case PLAYLISTS:
-                showPlaylists(new String[]{playlist});
+        showPage(lastEndpoint, lastParser, Math.max(0, offset - Main.pageSize));
+    }
+
+    /**
+     * Waits for a page to be fetched, reporting any failure to the user.
+     * @return the fetched page, or null if it could not be fetched.
+     */
+    private static <T> Page<T> await(final CompletableFuture<Page<T>> page) {
+        try {
+            return page.get();
+        } catch (ExecutionException e) {
+            CLI.update("Could not send/receive request/response.");
+            e.getCause().printStackTrace();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
         }
     }
 
-    private static boolean checkOutOfBound(final Action action) {
-        switch (action) {
-            case NEW:
-                return offset + Main.pageSize == albums.size();
-            case CATEGORIES:
-                return offset + Main.pageSize == categories.size();
-            case FEATURED:
-            case PLAYLISTS:
-                return offset + Main.pageSize == playlists.size();
-            default:
-                return false;
+    /**
+     * Wraps the client into one recording its responses into, or replaying them from, the archive given
+     * with {@code -record} or {@code -replay}, if any.
+     * @return the client the application talks to Spotify with.
+     */
+    private static HttpClient archive(final HttpClient client) {
+        try {
+            if (Main.replayFile != null) {
+                ArchiveHttpClient replay = ArchiveHttpClient.replay(client, Path.of(Main.replayFile));
+                CLI.update("Replaying " + replay.size() + " responses from " + Main.replayFile + ".");
+                return replay;
+            }
+            if (Main.recordFile != null) {
+                return ArchiveHttpClient.record(client, Path.of(Main.recordFile));
+            }
+        } catch (IOException e) {
+            CLI.update("Could not open the archive. Sending requests without it.");
+            e.printStackTrace();
         }
+        return client;
     }
 
-    private static void modifyOffset(final int control) {
-        switch (control) {
-            case 0:
-                offset = 0;
-                return;
-            case 1:
-                offset += Main.pageSize;
-                return;
-            case -1:
-                offset -= Main.pageSize;
+    private static void closeArchive() {
+        if (!(client instanceof ArchiveHttpClient)) {
+            return;
+        }
+        try {
+            ((ArchiveHttpClient) client).close();
+        } catch (IOException e) {
+            CLI.update("Could not save the archive.");
+            e.printStackTrace();
         }
+        CLI.flush();
     }
 
-    private static boolean hasError(HttpResponse<String> response) {
-        JsonObject body = JsonParser.parseString(response.body()).getAsJsonObject();
-        return body.has("error");
+    private static void saveSnapshot() {
+        try {
+            snapshots.save(cache);
+        } catch (IOException e) {
+            CLI.update("Could not save the catalog snapshot.");
+            e.printStackTrace();
+        }
+        CLI.flush();
     }
 
     private static void noAuthMessage() {
         CLI.update("Please, provide access for application.");
     }
-
-    private enum Action {
-        FEATURED,
-        NEW,
-        CATEGORIES,
-        PLAYLISTS
-    }
 }
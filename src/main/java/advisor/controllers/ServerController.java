@@ -0,0 +1,247 @@
+package advisor.controllers;
+
+import advisor.Main;
+import advisor.entities.Page;
+import advisor.utils.Utils;
+import advisor.view.CLI;
+import advisor.view.JsonView;
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the commands of the application as a JSON API over HTTP, for many users at once from one JVM.
+ * Every user gets a {@link advisor.controllers.Session} holding the user's credentials and browsing state,
+ * while the requests to Spotify and the cache of the catalog are shared by all sessions, so the catalog stays
+ * warm between users. Sessions left idle for an hour are ended.
+ *
+ * <p>A session is created with {@code POST /api/sessions}, which answers with the ID of the session and the
+ * URI the user opens to grant access. Commands are sent as {@code GET /api/<command>}, with the session ID
+ * in the {@code X-Session} header or the {@code session} query parameter, and answered with the page they show.
+ * The session ID is the only credential of a session and never leaves the server otherwise: the authorize URI
+ * carries a random {@code state} of its own, which is passed back with the OAuth redirect and can be used once.
+ *
+ * @author Alex Giazitzis
+ */
+public class ServerController {
+    private static final Duration IDLE_TIMEOUT = Duration.ofHours(1);
+
+    private final Map<String, Session>     sessions = new ConcurrentHashMap<>();
+    private final Map<String, Session>     states   = new ConcurrentHashMap<>();
+    private final SecureRandom             random   = new SecureRandom();
+    private final ScheduledExecutorService sweeper  = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "session-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ServerController() {
+    }
+
+    /**
+     * Starts serving the API, returning once the server is listening.
+     * @param port - the port to listen on, which must be the port of the redirect URI registered with Spotify,
+     *               as the OAuth redirects arrive at the root of the server.
+     * @param executor - runs the requests of the server.
+     * @throws IOException if the server could not bind on the port.
+     */
+    public static void run(final int port, final ExecutorService executor) throws IOException {
+        ServerController controller = new ServerController();
+        HttpServer       server     = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(executor);
+        server.createContext("/", controller::callback);
+        server.createContext("/api/sessions", controller::sessions);
+        server.createContext("/api/", controller::command);
+        server.start();
+        Utils.preconnect(Controller.client, Main.accessPoint, Main.resourcePoint);
+        controller.sweeper.scheduleWithFixedDelay(controller::sweep, 5, 5, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Creates the executor of the server: a fixed pool of platform threads, or a virtual thread per request
+     * when asked for and the JDK supports it, falling back to the pool otherwise.
+     * @param  kind - either {@code virtual} or {@code threads}.
+     * @param  threads - the size of the pool of platform threads.
+     * @return the executor.
+     */
+    public static ExecutorService executor(final String kind, final int threads) {
+        if ("virtual".equalsIgnoreCase(kind)) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                CLI.update("Virtual threads are not supported by this JDK. Falling back to a thread pool.");
+            }
+        }
+        return Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * Receives the OAuth redirect, authorizing the session named by its state.
+     */
+    private void callback(final HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestURI().getPath().equals("/")) {
+            respond(exchange, 404, error("Not found."));
+            return;
+        }
+        Map<String, String> query   = Utils.parseQuery(exchange.getRequestURI().getRawQuery());
+        Session             session = query.get("state") == null ? null : states.remove(query.get("state"));
+        String              message = "Got the code. Return back to your program.";
+        int                 status  = 200;
+        if (session == null || query.get("code") == null) {
+            message = "Authorization code not found. Try again.";
+            status = 400;
+        } else {
+            try {
+                session.authorize(query.get("code"));
+            } catch (IOException e) {
+                message = "Could not send/receive request/response.";
+                status = 502;
+                e.printStackTrace();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                message = "Server was interrupted.";
+                status = 503;
+            }
+        }
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(bytes);
+        }
+    }
+
+    private void sessions(final HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        if (exchange.getRequestMethod().equals("POST") && path.equals("/api/sessions")) {
+            Session session = new Session(token(), Controller.client, Controller.scheduler, Controller.cache,
+                                          Controller.catalogs);
+            String  state   = token();
+            sessions.put(session.getId(), session);
+            states.put(state, session);
+            respond(exchange, 201, writer -> {
+                writer.name("session").value(session.getId());
+                writer.name("authorize").value(Utils.stateUrlBuilder.apply(state));
+            });
+        } else if (exchange.getRequestMethod().equals("DELETE") && path.startsWith("/api/sessions/")) {
+            Session session = sessions.remove(path.substring("/api/sessions/".length()));
+            if (session == null) {
+                respond(exchange, 404, error("Unknown session."));
+                return;
+            }
+            states.values().remove(session);
+            session.close();
+            respond(exchange, 200, writer -> writer.name("status").value("ok"));
+        } else {
+            respond(exchange, 405, error("Method not allowed."));
+        }
+    }
+
+    private void command(final HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            respond(exchange, 405, error("Method not allowed."));
+            return;
+        }
+        Map<String, String> query   = Utils.parseQuery(exchange.getRequestURI().getRawQuery());
+        String              id      = exchange.getRequestHeaders().getFirst("X-Session");
+        Session             session = sessions.get(id != null ? id : query.getOrDefault("session", ""));
+        if (session == null) {
+            respond(exchange, 404, error("Unknown session."));
+            return;
+        }
+        if (!session.isAuthorized()) {
+            respond(exchange, 401, error("Please, provide access for application."));
+            return;
+        }
+        Page<?> page;
+        try {
+            page = session.handle(exchange.getRequestURI().getPath().substring("/api/".length()),
+                                  query.get("category"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, error("Server was interrupted."));
+            return;
+        }
+        if (page.hasError()) {
+            respond(exchange, 200, error(page.getError()));
+            return;
+        }
+        respond(exchange, 200, writer -> {
+            writer.name("status").value("ok");
+            JsonView.writePage(writer, page);
+        });
+    }
+
+    /**
+     * Ends the sessions left idle for longer than the timeout.
+     */
+    private void sweep() {
+        Instant expired = Instant.now().minus(IDLE_TIMEOUT);
+        sessions.values().removeIf(session -> {
+            if (session.getLastUsed().isBefore(expired)) {
+                states.values().remove(session);
+                session.close();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * @return a random, URL safe secret.
+     */
+    private String token() {
+        byte[] bytes = new byte[18];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static Fields error(final String message) {
+        return writer -> {
+            writer.name("status").value("error");
+            writer.name("error").value(message);
+        };
+    }
+
+    /**
+     * Responds with a JSON object holding the given fields.
+     */
+    private static void respond(final HttpExchange exchange, final int status, final Fields fields)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8))) {
+            writer.beginObject();
+            fields.write(writer);
+            writer.endObject();
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.size());
+        try (OutputStream body = exchange.getResponseBody()) {
+            bytes.writeTo(body);
+        }
+    }
+
+    /**
+     * Writes the fields of a JSON response.
+     */
+    @FunctionalInterface
+    private interface Fields {
+        void write(JsonWriter writer) throws IOException;
+    }
+}
@@ -0,0 +1,185 @@
+package advisor.controllers;
+
+import advisor.Main;
+import advisor.entities.Category;
+import advisor.entities.Page;
+import advisor.services.CatalogService;
+import advisor.services.CategoryIndex;
+import advisor.services.PageService;
+import advisor.services.ParserService;
+import advisor.services.RequestScheduler;
+import advisor.services.ResponseCache;
+import advisor.services.TokenService;
+import advisor.utils.Utils;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * The state of one user of the {@link advisor.controllers.ServerController}: the user's credentials and the page
+ * the user is browsing. Pages are fetched through the scheduler and the cache shared by all sessions, so the
+ * catalog fetched for one user is served to every other user without another request, as is the catalog kept
+ * by the {@link advisor.services.CatalogService}.
+ * A session handles one command at a time, while different sessions are handled concurrently.
+ *
+ * @author Alex Giazitzis
+ */
+public class Session {
+    private static final ParserService service = new ParserService();
+
+    private final    String                id;
+    private final    TokenService          tokens;
+    private final    PageService           pages;
+    private final    CatalogService        catalogs;
+    private volatile Instant               lastUsed   = Instant.now();
+    private          String                lastEndpoint;
+    private          PageService.Parser<?> lastParser;
+    private          int                   offset     = 0;
+    private          int                   total      = 0;
+
+    /**
+     * @param id - the ID of the session, the secret its user sends every command with.
+     * @param client - the {@link java.net.http.HttpClient} the token requests are sent with.
+     * @param scheduler - the {@link advisor.services.RequestScheduler} shared by all sessions.
+     * @param cache - the {@link advisor.services.ResponseCache} shared by all sessions.
+     * @param catalogs - the {@link advisor.services.CatalogService} whose catalog is shared by all sessions.
+     */
+    public Session(final String id, final HttpClient client, final RequestScheduler scheduler,
+                   final ResponseCache cache, final CatalogService catalogs) {
+        this.id = id;
+        this.tokens = new TokenService(client, null);
+        this.pages = new PageService(scheduler, tokens, cache);
+        this.catalogs = catalogs;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Instant getLastUsed() {
+        return lastUsed;
+    }
+
+    public boolean isAuthorized() {
+        return tokens.isAuthorized();
+    }
+
+    /**
+     * Exchanges the authorization code of the OAuth redirect for the user's credentials.
+     * @param  code - the authorization code.
+     * @throws IOException if the request failed or was rejected.
+     * @throws InterruptedException if interrupted while waiting for the response.
+     */
+    public void authorize(final String code) throws IOException, InterruptedException {
+        tokens.authorize("code=" + code);
+    }
+
+    /**
+     * Ends the session, stopping the refresh of its access token.
+     */
+    public void close() {
+        tokens.close();
+    }
+
+    /**
+     * Handles a command, the same way the interactive mode does.
+     * @param  command - one of {@code featured}, {@code new}, {@code categories}, {@code playlists},
+     *                   {@code next} or {@code prev}.
+     * @param  argument - the category name of {@code playlists}, ignored by the rest of the commands.
+     * @return the page the command shows, or an error page.
+     * @throws InterruptedException if interrupted while waiting for the page.
+     */
+    public synchronized Page<?> handle(final String command, final String argument) throws InterruptedException {
+        lastUsed = Instant.now();
+        if (!tokens.isAuthorized()) {
+            return Page.error("Please, provide access for application.");
+        }
+        switch (command) {
+            case "featured":
+                return browse("featured-playlists", service::getPlaylists);
+            case "new":
+                return browse("new-releases", service::getAlbums);
+            case "categories":
+                return browse("categories", service::getCategories);
+            case "playlists":
+                return showPlaylists(argument == null ? "" : argument);
+            case "next":
+                if (lastEndpoint == null) {
+                    return Page.error("No pages to show.");
+                }
+                if (offset + Main.pageSize >= total) {
+                    return Page.error("No more pages.");
+                }
+                return showPage(lastEndpoint, lastParser, offset + Main.pageSize);
+            case "prev":
+                if (lastEndpoint == null) {
+                    return Page.error("No pages to show.");
+                }
+                if (offset == 0) {
+                    return Page.error("No more pages.");
+                }
+                return showPage(lastEndpoint, lastParser, Math.max(0, offset - Main.pageSize));
+            default:
+                return Page.error("Invalid option inputted. Try again.");
+        }
+    }
+
+    private Page<?> showPlaylists(final String name) throws InterruptedException {
+        if (catalogs.get().getCategories().isEmpty()) {
+            Page<Category> loaded = await(pages.fetchEvery("categories", service::getCategories));
+            if (loaded.hasError()) {
+                return loaded;
+            }
+            catalogs.putCategories(loaded.getItems());
+        }
+        CategoryIndex categories = catalogs.get().getCategories();
+        Category      category   = categories.find(name);
+        if (category == null) {
+            String suggestions = categories.suggest(name, 3).stream()
+                                           .map(Category::getName)
+                                           .collect(Collectors.joining(", "));
+            return Page.error("Unknown category: " + name.trim() +
+                              (suggestions.isEmpty() ? "." : ". Did you mean: " + suggestions + "?"));
+        }
+        return browse(Utils.playlistsEndpoint.apply(category.getId()), service::getPlaylists);
+    }
+
+    private <T> Page<T> browse(final String endpoint, final PageService.Parser<T> parser)
+            throws InterruptedException {
+        Page<T> page = showPage(endpoint, parser, 0);
+        if (!page.hasError()) {
+            lastEndpoint = endpoint;
+            lastParser = parser;
+        }
+        return page;
+    }
+
+    private <T> Page<T> showPage(final String endpoint, final PageService.Parser<T> parser, final int from)
+            throws InterruptedException {
+        Page<T> page = catalogs.get().page(endpoint, from, Main.pageSize);
+        if (page == null) {
+            page = await(pages.fetch(endpoint, from, Main.pageSize, parser));
+        }
+        if (page.hasError()) {
+            return page;
+        }
+        offset = from;
+        total = page.getTotal();
+        if (offset + Main.pageSize < total && !catalogs.get().holds(endpoint)) {
+            pages.prefetch(endpoint, offset + Main.pageSize, Main.pageSize, parser);
+        }
+        return page;
+    }
+
+    private static <T> Page<T> await(final CompletableFuture<Page<T>> page) throws InterruptedException {
+        try {
+            return page.get();
+        } catch (ExecutionException e) {
+            return Page.error("Could not send/receive request/response.");
+        }
+    }
+}
@@ -1,24 +1,91 @@
 package advisor.entities;
 
-import java.util.Arrays;
+import advisor.view.Renderable;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
+ * An album, either read from a row of an {@link advisor.entities.AlbumTable} or holding its own fields when
+ * created on its own.
+ *
  * @author Alex Giazitzis
  */
-public class Album {
+public class Album implements Renderable {
+    private final AlbumTable   table;
+    private final int          row;
     private final String       name;
     private final List<String> artists;
-    private final String uri;
+    private final String       uri;
 
     public Album(final String name, final List<String> artists, final String uri) {
+        this.table = null;
+        this.row = -1;
         this.name = name;
-        this.artists = artists;
+        this.artists = Collections.unmodifiableList(new ArrayList<>(artists));
         this.uri = uri;
     }
 
+    Album(final AlbumTable table, final int row) {
+        this.table = table;
+        this.row = row;
+        this.name = null;
+        this.artists = null;
+        this.uri = null;
+    }
+
+    public String getName() {
+        return table == null ? name : table.name(row);
+    }
+
+    public List<String> getArtists() {
+        return table == null ? artists : table.artists(row);
+    }
+
+    public String getUri() {
+        return table == null ? uri : table.uri(row);
+    }
+
+    /**
+     * @return the Spotify ID of the album, which ends its link, or null if the album has no link.
+     */
+    public String getId() {
+        if (table == null) {
+            return uri == null ? null : uri.substring(uri.lastIndexOf('/') + 1);
+        }
+        return table.id(row);
+    }
+
+    @Override
+    public void render(final Writer out) throws IOException {
+        String       name    = getName();
+        List<String> artists = getArtists();
+        out.write(String.valueOf(name));
+        out.write("\n[");
+        for (int i = 0; i < artists.size(); i++) {
+            if (i > 0) {
+                out.write(", ");
+            }
+            out.write(String.valueOf(artists.get(i)));
+        }
+        out.write("]\n");
+        out.write(String.valueOf(getUri()));
+        out.write('\n');
+    }
+
     @Override
     public String toString() {
-        return name + "\n" + Arrays.toString(artists.toArray()) + "\n" + uri + "\n";
+        StringWriter out = new StringWriter();
+        try {
+            render(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
     }
 }
@@ -0,0 +1,129 @@
+package advisor.entities;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Columnar storage of a list of {@link advisor.entities.Album}, the form parsed albums are kept in.
+ * Names and the IDs ending the links are packed as UTF-8 into one byte array, while the prefixes of the links
+ * and the artists are interned into the {@link advisor.entities.StringPool} shared by every table, so that an
+ * artist listed in many pages is held once. Every album of the list is a view over one row of the table, created
+ * when read, so a page of albums costs a handful of arrays instead of several objects per album. The names and
+ * links of the rows that were read are kept decoded, so rendering a page again creates no strings.
+ *
+ * @author Alex Giazitzis
+ */
+public final class AlbumTable extends AbstractList<Album> implements RandomAccess {
+    private final byte[]   text;
+    private final int[]    names;
+    private final String[] prefixes;
+    private final int[]    ids;
+    private final int[]    artistStarts;
+    private final String[] artists;
+    private final String[] decodedNames;
+    private final String[] uris;
+
+    private AlbumTable(final Builder builder) {
+        this.text = builder.text.toArray();
+        this.names = builder.names.toArray();
+        this.prefixes = builder.prefixes.toArray(new String[0]);
+        this.ids = builder.ids.toArray();
+        this.artistStarts = builder.artistStarts.toArray();
+        this.artists = builder.artists.toArray(new String[0]);
+        this.decodedNames = new String[names.length];
+        this.uris = new String[names.length];
+    }
+
+    @Override
+    public Album get(final int index) {
+        if (index < 0 || index >= names.length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + names.length);
+        }
+        return new Album(this, index);
+    }
+
+    @Override
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Decodes the name of a row once, as racing threads decode equal strings at worst.
+     */
+    String name(final int row) {
+        String name = decodedNames[row];
+        if (name == null && names[row] >= 0) {
+            name = Columns.text(text, names[row]);
+            decodedNames[row] = name;
+        }
+        return name;
+    }
+
+    String uri(final int row) {
+        String uri = uris[row];
+        if (uri == null && prefixes[row] != null) {
+            uri = prefixes[row] + Columns.text(text, ids[row]);
+            uris[row] = uri;
+        }
+        return uri;
+    }
+
+    String id(final int row) {
+        return Columns.text(text, ids[row]);
+    }
+
+    List<String> artists(final int row) {
+        int start = artistStarts[row];
+        int end   = row + 1 < artistStarts.length ? artistStarts[row + 1] : artists.length;
+        return new AbstractList<>() {
+            @Override
+            public String get(final int index) {
+                if (index < 0 || start + index >= end) {
+                    throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size());
+                }
+                return artists[start + index];
+            }
+
+            @Override
+            public int size() {
+                return end - start;
+            }
+        };
+    }
+
+    /**
+     * Appends albums row by row, building the table once every album was added.
+     */
+    public static final class Builder {
+        private final Columns.Text text         = new Columns.Text();
+        private final Columns.Ints names        = new Columns.Ints();
+        private final List<String> prefixes     = new ArrayList<>();
+        private final Columns.Ints ids          = new Columns.Ints();
+        private final Columns.Ints artistStarts = new Columns.Ints();
+        private final List<String> artists      = new ArrayList<>();
+
+        /**
+         * @param  name - the name of the album.
+         * @param  artistNames - the names of the artists of the album.
+         * @param  uri - the link to the album.
+         * @return this builder.
+         */
+        public Builder add(final String name, final List<String> artistNames, final String uri) {
+            int split = uri == null ? 0 : uri.lastIndexOf('/') + 1;
+            names.add(text.add(name));
+            prefixes.add(StringPool.SHARED.intern(uri == null ? null : uri.substring(0, split)));
+            ids.add(text.add(uri == null ? null : uri.substring(split)));
+            artistStarts.add(artists.size());
+            for (String artist : artistNames) {
+                artists.add(StringPool.SHARED.intern(artist));
+            }
+            return this;
+        }
+
+        public AlbumTable build() {
+            return new AlbumTable(this);
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package advisor.entities;
 
+import advisor.view.Renderable;
+
+import java.io.IOException;
+import java.io.Writer;
+
 /**
  * @author Alex Giazitzis
  */
-public class Category {
+public class Category implements Renderable {
     private final String name;
     private final String id;
 
@@ -20,6 +25,11 @@ public class Category {
         return id;
     }
 
+    @Override
+    public void render(final Writer out) throws IOException {
+        out.write(String.valueOf(name));
+    }
+
     @Override
     public String toString() {
         return name;
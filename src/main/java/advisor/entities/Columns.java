@@ -0,0 +1,94 @@
+package advisor.entities;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable columns the entity tables are built with: a column of ints, and a column of strings packed as
+ * UTF-8 into one byte array, where every string is found by the offset of its length prefix.
+ *
+ * @author Alex Giazitzis
+ */
+final class Columns {
+    private Columns() {
+    }
+
+    /**
+     * Reads a string written to a {@link advisor.entities.Columns.Text}.
+     * @param  text - the bytes of the column.
+     * @param  offset - the offset returned when the string was added, or -1 for null.
+     * @return the string.
+     */
+    static String text(final byte[] text, final int offset) {
+        if (offset < 0) {
+            return null;
+        }
+        int position = offset;
+        int length   = 0;
+        int shift    = 0;
+        byte next;
+        do {
+            next = text[position++];
+            length |= (next & 0x7F) << shift;
+            shift += 7;
+        } while (next < 0);
+        return new String(text, position, length, StandardCharsets.UTF_8);
+    }
+
+    static final class Text {
+        private byte[] bytes = new byte[256];
+        private int    size  = 0;
+
+        /**
+         * @param  value - the string to add.
+         * @return the offset of the string, or -1 for null.
+         */
+        int add(final String value) {
+            if (value == null) {
+                return -1;
+            }
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            int    offset  = size;
+            ensure(5 + encoded.length);
+            int length = encoded.length;
+            while ((length & ~0x7F) != 0) {
+                bytes[size++] = (byte) ((length & 0x7F) | 0x80);
+                length >>>= 7;
+            }
+            bytes[size++] = (byte) length;
+            System.arraycopy(encoded, 0, bytes, size, encoded.length);
+            size += encoded.length;
+            return offset;
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+        private void ensure(final int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+            }
+        }
+    }
+
+    static final class Ints {
+        private int[] values = new int[16];
+        private int   size   = 0;
+
+        void add(final int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
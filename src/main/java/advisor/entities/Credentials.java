@@ -0,0 +1,36 @@
+package advisor.entities;
+
+import java.time.Instant;
+
+/**
+ * The tokens Spotify's OAuth process grants, along with the time the access token expires.
+ *
+ * @author Alex Giazitzis
+ */
+public class Credentials {
+    private final String  accessToken;
+    private final String  refreshToken;
+    private final Instant expiresAt;
+
+    public Credentials(final String accessToken, final String refreshToken, final Instant expiresAt) {
+        this.accessToken = accessToken;
+        this.refreshToken = refreshToken;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getAccessToken() {
+        return accessToken;
+    }
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isExpired() {
+        return !Instant.now().isBefore(expiresAt);
+    }
+}
@@ -0,0 +1,55 @@
+package advisor.entities;
+
+import advisor.view.Renderable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * An {@link advisor.entities.Album} released in many markets, along with the markets it was listed in
+ * and its highest position among the new releases of those markets.
+ *
+ * @author Alex Giazitzis
+ */
+public class MarketAlbum implements Renderable {
+    private final Album        album;
+    private final List<String> markets;
+    private final int          position;
+
+    /**
+     * @param album - the album.
+     * @param markets - the country codes of the markets the album was listed in.
+     * @param position - the highest position of the album among the new releases of its markets, from zero.
+     */
+    public MarketAlbum(final Album album, final List<String> markets, final int position) {
+        this.album = album;
+        this.markets = List.copyOf(markets);
+        this.position = position;
+    }
+
+    public Album getAlbum() {
+        return album;
+    }
+
+    public List<String> getMarkets() {
+        return markets;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    @Override
+    public void render(final Writer out) throws IOException {
+        album.render(out);
+        out.write("Markets: ");
+        out.write(String.join(", ", markets));
+        out.write('\n');
+    }
+
+    @Override
+    public String toString() {
+        return album + "Markets: " + String.join(", ", markets) + "\n";
+    }
+}
@@ -0,0 +1,79 @@
+package advisor.entities;
+
+import java.util.List;
+
+/**
+ * A single page of a Spotify paging object, holding the parsed items along with
+ * the paging metadata the API reported, or the error message if the API answered with one.
+ *
+ * @param <T> - the entity type contained in the page.
+ * @author Alex Giazitzis
+ */
+public class Page<T> {
+    private final List<T> items;
+    private final int     offset;
+    private final int     limit;
+    private final int     total;
+    private final String  error;
+
+    public Page(final List<T> items, final int offset, final int limit, final int total) {
+        this(items, offset, limit, total, null);
+    }
+
+    private Page(final List<T> items, final int offset, final int limit, final int total, final String error) {
+        this.items = items;
+        this.offset = offset;
+        this.limit = limit;
+        this.total = total;
+        this.error = error;
+    }
+
+    /**
+     * Creates a page that carries only the error message of a failed request.
+     * @param  message - the error message returned by the API.
+     * @param  <T> - the entity type the page would have contained.
+     * @return an empty {@link advisor.entities.Page} flagged with the error.
+     */
+    public static <T> Page<T> error(final String message) {
+        return new Page<>(List.of(), 0, 0, 0, message);
+    }
+
+    /**
+     * Creates a page out of a list holding every item, clamped to the items of the list, so that pages past the end
+     * are empty instead of failing.
+     * @param  items - every item.
+     * @param  offset - the index of the first item of the page.
+     * @param  limit - the maximum amount of items in the page.
+     * @param  <T> - the entity type of the items.
+     * @return the page, whose items are a view of the list.
+     */
+    public static <T> Page<T> slice(final List<T> items, final int offset, final int limit) {
+        int from = Math.min(Math.max(0, offset), items.size());
+        int to   = Math.min(from + Math.max(0, limit), items.size());
+        return new Page<>(items.subList(from, to), from, limit, items.size());
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean hasError() {
+        return error != null;
+    }
+}
@@ -1,19 +1,74 @@
 package advisor.entities;
 
+import advisor.view.Renderable;
+
+import java.io.IOException;
+import java.io.Writer;
+
 /**
+ * A playlist, either read from a row of a {@link advisor.entities.PlaylistTable} or holding its own fields when
+ * created on its own.
+ *
  * @author Alex Giazitzis
  */
-public class Playlist {
-    private final String name;
-    private final String url;
+public class Playlist implements Renderable {
+    private final PlaylistTable table;
+    private final int           row;
+    private final String        name;
+    private final String        url;
+    private final String        id;
+    private final String        snapshotId;
 
-    public Playlist(final String name, final String url) {
+    /**
+     * @param name - the name of the playlist.
+     * @param url - the link to the playlist.
+     * @param id - the Spotify ID of the playlist, or null if unknown.
+     * @param snapshotId - the version of the playlist, which changes whenever the playlist does, or null if unknown.
+     */
+    public Playlist(final String name, final String url, final String id, final String snapshotId) {
+        this.table = null;
+        this.row = -1;
         this.name = name;
         this.url = url;
+        this.id = id;
+        this.snapshotId = snapshotId;
+    }
+
+    Playlist(final PlaylistTable table, final int row) {
+        this.table = table;
+        this.row = row;
+        this.name = null;
+        this.url = null;
+        this.id = null;
+        this.snapshotId = null;
+    }
+
+    public String getName() {
+        return table == null ? name : table.name(row);
+    }
+
+    public String getUrl() {
+        return table == null ? url : table.url(row);
+    }
+
+    public String getId() {
+        return table == null ? id : table.id(row);
+    }
+
+    public String getSnapshotId() {
+        return table == null ? snapshotId : table.snapshotId(row);
+    }
+
+    @Override
+    public void render(final Writer out) throws IOException {
+        out.write(String.valueOf(getName()));
+        out.write('\n');
+        out.write(String.valueOf(getUrl()));
+        out.write('\n');
     }
 
     @Override
     public String toString() {
-        return name + "\n" + url + "\n";
+        return getName() + "\n" + getUrl() + "\n";
     }
 }
@@ -0,0 +1,115 @@
+package advisor.entities;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Columnar storage of a list of {@link advisor.entities.Playlist}, the form parsed playlists are kept in.
+ * Names, snapshot IDs and the IDs ending the links are packed as UTF-8 into one byte array, and the prefixes of the
+ * links are interned into the {@link advisor.entities.StringPool} shared by every table. The ID of a playlist is the
+ * one ending its link, so it's only stored when it differs. Every playlist of the list is a view over one row of the
+ * table, created when read, while the names and links of the rows that were read are kept decoded.
+ *
+ * @author Alex Giazitzis
+ */
+public final class PlaylistTable extends AbstractList<Playlist> implements RandomAccess {
+    private static final int LINK_ID = -2;
+
+    private final byte[]   text;
+    private final int[]    names;
+    private final String[] prefixes;
+    private final int[]    linkIds;
+    private final int[]    ids;
+    private final int[]    snapshotIds;
+    private final String[] decodedNames;
+    private final String[] urls;
+
+    private PlaylistTable(final Builder builder) {
+        this.text = builder.text.toArray();
+        this.names = builder.names.toArray();
+        this.prefixes = builder.prefixes.toArray(new String[0]);
+        this.linkIds = builder.linkIds.toArray();
+        this.ids = builder.ids.toArray();
+        this.snapshotIds = builder.snapshotIds.toArray();
+        this.decodedNames = new String[names.length];
+        this.urls = new String[names.length];
+    }
+
+    @Override
+    public Playlist get(final int index) {
+        if (index < 0 || index >= names.length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + names.length);
+        }
+        return new Playlist(this, index);
+    }
+
+    @Override
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Decodes the name of a row once, as racing threads decode equal strings at worst.
+     */
+    String name(final int row) {
+        String name = decodedNames[row];
+        if (name == null && names[row] >= 0) {
+            name = Columns.text(text, names[row]);
+            decodedNames[row] = name;
+        }
+        return name;
+    }
+
+    String url(final int row) {
+        String url = urls[row];
+        if (url == null && prefixes[row] != null) {
+            url = prefixes[row] + Columns.text(text, linkIds[row]);
+            urls[row] = url;
+        }
+        return url;
+    }
+
+    String id(final int row) {
+        return Columns.text(text, ids[row] == LINK_ID ? linkIds[row] : ids[row]);
+    }
+
+    String snapshotId(final int row) {
+        return Columns.text(text, snapshotIds[row]);
+    }
+
+    /**
+     * Appends playlists row by row, building the table once every playlist was added.
+     */
+    public static final class Builder {
+        private final Columns.Text text        = new Columns.Text();
+        private final Columns.Ints names       = new Columns.Ints();
+        private final List<String> prefixes    = new ArrayList<>();
+        private final Columns.Ints linkIds     = new Columns.Ints();
+        private final Columns.Ints ids         = new Columns.Ints();
+        private final Columns.Ints snapshotIds = new Columns.Ints();
+
+        /**
+         * @param  name - the name of the playlist.
+         * @param  url - the link to the playlist.
+         * @param  id - the Spotify ID of the playlist, or null if unknown.
+         * @param  snapshotId - the version of the playlist, or null if unknown.
+         * @return this builder.
+         */
+        public Builder add(final String name, final String url, final String id, final String snapshotId) {
+            int    split  = url == null ? 0 : url.lastIndexOf('/') + 1;
+            String linkId = url == null ? null : url.substring(split);
+            names.add(text.add(name));
+            prefixes.add(StringPool.SHARED.intern(url == null ? null : url.substring(0, split)));
+            linkIds.add(text.add(linkId));
+            ids.add(id != null && id.equals(linkId) ? LINK_ID : text.add(id));
+            snapshotIds.add(text.add(snapshotId));
+            return this;
+        }
+
+        public PlaylistTable build() {
+            return new PlaylistTable(this);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package advisor.entities;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Interning pool of strings repeated across many entities, such as artist names or the prefixes of links,
+ * so that every distinct string is held once by every table and page of the application. Tables keep the pooled
+ * instances themselves rather than indexes into the pool, so the pool is read and grown without locking, and is
+ * bounded: once it holds its maximum amount of strings a new generation is started, while the strings of the
+ * previous one stay shared by the tables already built with them and are freed along with those.
+ *
+ * @author Alex Giazitzis
+ */
+final class StringPool {
+    static final StringPool SHARED = new StringPool(1 << 16);
+
+    private final int                                                max;
+    private final AtomicReference<ConcurrentHashMap<String, String>> generation;
+
+    /**
+     * @param max - the maximum amount of strings of a generation of the pool.
+     */
+    StringPool(final int max) {
+        this.max = max;
+        this.generation = new AtomicReference<>(new ConcurrentHashMap<>());
+    }
+
+    /**
+     * @param  value - the string to intern.
+     * @return the pooled instance equal to the string, or null for null.
+     */
+    String intern(final String value) {
+        if (value == null) {
+            return null;
+        }
+        ConcurrentHashMap<String, String> strings = generation.get();
+        String                            pooled  = strings.get(value);
+        if (pooled != null) {
+            return pooled;
+        }
+        if (strings.size() >= max) {
+            generation.compareAndSet(strings, new ConcurrentHashMap<>());
+            strings = generation.get();
+        }
+        pooled = strings.putIfAbsent(value, value);
+        return pooled == null ? value : pooled;
+    }
+
+    /**
+     * @return the amount of strings of the current generation.
+     */
+    int size() {
+        return generation.get().size();
+    }
+}
@@ -0,0 +1,448 @@
+package advisor.mock;
+
+import advisor.utils.Utils;
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local stand-in for the parts of Spotify's OAuth and REST APIs the application uses, serving a synthetic
+ * catalog of configurable size with configurable latency, jitter, server errors and rate limiting.
+ * Items are generated from their index on every request, so catalogs of any size cost no memory, and
+ * responses carry an ETag that conditional requests are answered with 304 against.
+ * Responses are gzip compressed for requests that accept it, as Spotify's are.
+ *
+ * <p>It can be started on its own through {@link #main(String[])}, or in-process with the {@code -mock}
+ * argument of the application.
+ *
+ * @author Alex Giazitzis
+ */
+public class MockSpotifyServer {
+    private static final int      GZIP_THRESHOLD = 256;
+    private static final String[] WORDS          = {
+            "midnight", "summer", "chill", "focus", "indie", "rock", "jazz", "lofi", "beats", "deep", "house",
+            "acoustic", "morning", "workout", "party", "soul", "classics", "rising", "hits", "latin", "mellow",
+            "night", "drive", "electric", "golden", "velvet", "neon", "wild", "quiet", "northern", "ocean", "fire"
+    };
+
+    private final Settings        settings;
+    private final HttpServer      server;
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "mock-spotify");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong      tokens   = new AtomicLong();
+
+    public MockSpotifyServer(final Settings settings) throws IOException {
+        this.settings = settings;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", settings.port), 0);
+        server.setExecutor(executor);
+        server.createContext("/authorize", this::authorize);
+        server.createContext("/api/token", exchange -> handle(exchange, this::token));
+        server.createContext("/v1/browse/", exchange -> handle(exchange, this::browse));
+    }
+
+    public static void main(String[] args) throws IOException {
+        Settings settings = Settings.fromArguments(List.of(args));
+        new MockSpotifyServer(settings).start();
+        System.out.println("Mock Spotify listening on " + settings.getUrl());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Redirects straight back to the application with an authorization code, as if the user granted access.
+     */
+    private void authorize(final HttpExchange exchange) throws IOException {
+        Map<String, String> query    = Utils.parseQuery(exchange.getRequestURI().getRawQuery());
+        String              redirect = query.getOrDefault("redirect_uri", "http://localhost:8080");
+        String              location = redirect + "?code=mock-" + tokens.incrementAndGet();
+        if (query.get("state") != null) {
+            location += "&state=" + URLEncoder.encode(query.get("state"), StandardCharsets.UTF_8);
+        }
+        exchange.getResponseHeaders().set("Location", location);
+        exchange.sendResponseHeaders(302, -1);
+        exchange.close();
+    }
+
+    private Response token(final HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            return Response.error(405, "Method not allowed");
+        }
+        Map<String, String> form = Utils.parseQuery(new String(exchange.getRequestBody().readAllBytes(),
+                                                         StandardCharsets.UTF_8));
+        String grant = form.getOrDefault("grant_type", "");
+        if (!grant.equals("authorization_code") && !grant.equals("refresh_token")) {
+            return Response.json(400, writer -> writer.name("error").value("unsupported_grant_type")
+                                                      .name("error_description").value("Unsupported grant type"));
+        }
+        long token = tokens.incrementAndGet();
+        return Response.json(200, writer -> {
+            writer.name("access_token").value("mock-access-" + token);
+            writer.name("token_type").value("Bearer");
+            writer.name("scope").value("");
+            writer.name("expires_in").value(settings.tokenLifetime);
+            if (grant.equals("authorization_code")) {
+                writer.name("refresh_token").value("mock-refresh-" + token);
+            }
+        });
+    }
+
+    private Response browse(final HttpExchange exchange) throws IOException {
+        String auth = exchange.getRequestHeaders().getFirst("Authorization");
+        if (auth == null || !auth.startsWith("Bearer mock-access-")) {
+            return Response.error(401, "Invalid access token");
+        }
+        Map<String, String> query = Utils.parseQuery(exchange.getRequestURI().getRawQuery());
+        int                 offset;
+        int                 limit;
+        try {
+            offset = Integer.parseInt(query.getOrDefault("offset", "0"));
+            limit = Integer.parseInt(query.getOrDefault("limit", "20"));
+        } catch (NumberFormatException e) {
+            return Response.error(400, "Invalid offset or limit");
+        }
+        if (offset < 0 || limit < 1 || limit > 50) {
+            return Response.error(400, "Invalid limit");
+        }
+
+        String[] path = exchange.getRequestURI().getPath().substring("/v1/browse/".length()).split("/");
+        if (path.length == 1 && path[0].equals("featured-playlists")) {
+            return page("playlists", "Popular Playlists", settings.featured, offset, limit,
+                        (writer, i) -> writePlaylist(writer, "featured", i));
+        } else if (path.length == 1 && path[0].equals("new-releases")) {
+            String country = query.getOrDefault("country", "US");
+            return page("albums", null, settings.releases, offset, limit,
+                        (writer, i) -> writeAlbum(writer, country, i));
+        } else if (path.length == 1 && path[0].equals("categories")) {
+            return page("categories", null, settings.categories, offset, limit, this::writeCategory);
+        } else if (path.length == 3 && path[0].equals("categories") && path[2].equals("playlists")) {
+            int category = categoryIndex(path[1]);
+            if (category < 0 || category >= settings.categories) {
+                return Response.error(404, "Specified id doesn't exist");
+            }
+            return page("playlists", null, settings.playlists, offset, limit,
+                        (writer, i) -> writePlaylist(writer, path[1], i));
+        }
+        return Response.error(404, "Service not found");
+    }
+
+    /**
+     * Applies the configured latency and faults, then writes the response, answering with 304 if the
+     * request's If-None-Match matches the ETag of the response, and compressing it if the request accepts gzip.
+     */
+    private void handle(final HttpExchange exchange, final Handler handler) throws IOException {
+        try {
+            long delay = settings.latency + (settings.jitter > 0
+                                             ? ThreadLocalRandom.current().nextLong(settings.jitter + 1)
+                                             : 0);
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+            Response response;
+            double   roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < settings.throttleRate) {
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(settings.retryAfter));
+                response = Response.error(429, "API rate limit exceeded");
+            } else if (roll < settings.throttleRate + settings.errorRate) {
+                response = Response.error(ThreadLocalRandom.current().nextBoolean() ? 500 : 503, "Server error");
+            } else {
+                response = handler.handle(exchange);
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            if (response.status == 200) {
+                String etag = etag(response.body);
+                exchange.getResponseHeaders().set("ETag", etag);
+                if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    exchange.sendResponseHeaders(304, -1);
+                    return;
+                }
+            }
+            byte[] bytes    = response.body;
+            String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+            if (settings.gzip && accepted != null && accepted.contains("gzip") && bytes.length >= GZIP_THRESHOLD) {
+                bytes = gzip(bytes);
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(response.status, bytes.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(bytes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Response page(final String key, final String message, final int total, final int offset,
+                          final int limit, final ItemWriter items) throws IOException {
+        return Response.json(200, writer -> {
+            if (message != null) {
+                writer.name("message").value(message);
+            }
+            writer.name(key).beginObject();
+            writer.name("href").value("https://api.spotify.com/v1/browse/" + key + "?offset=" + offset +
+                                      "&limit=" + limit);
+            writer.name("items").beginArray();
+            for (int i = offset; i < Math.min(total, offset + limit); i++) {
+                items.write(writer, i);
+            }
+            writer.endArray();
+            writer.name("limit").value(limit);
+            writer.name("next").value(offset + limit < total ? "https://api.spotify.com/v1/browse/" + key +
+                                                               "?offset=" + (offset + limit) + "&limit=" + limit
+                                                             : null);
+            writer.name("offset").value(offset);
+            writer.name("previous").value(offset > 0 ? "https://api.spotify.com/v1/browse/" + key + "?offset=" +
+                                                       Math.max(0, offset - limit) + "&limit=" + limit
+                                                     : null);
+            writer.name("total").value(total);
+            writer.endObject();
+        });
+    }
+
+    private void writePlaylist(final JsonWriter writer, final String owner, final int index) throws IOException {
+        String id = owner + "-playlist-" + index;
+        writer.beginObject();
+        writer.name("collaborative").value(false);
+        writer.name("description").value("The best of " + words(id.hashCode(), 2));
+        writer.name("external_urls").beginObject()
+              .name("spotify").value("https://open.spotify.com/playlist/" + id).endObject();
+        writer.name("href").value("https://api.spotify.com/v1/playlists/" + id);
+        writer.name("id").value(id);
+        writer.name("name").value(capitalize(words(id.hashCode() * 31 + 7, 1 + Math.floorMod(index, 3))));
+        writer.name("public").value(true);
+        writer.name("snapshot_id").value("snapshot-" + settings.revision + "-" + Math.floorMod(id.hashCode(), 997));
+        writer.name("tracks").beginObject().name("total").value(40 + Math.floorMod(id.hashCode(), 160)).endObject();
+        writer.name("type").value("playlist");
+        writer.name("uri").value("spotify:playlist:" + id);
+        writer.endObject();
+    }
+
+    private void writeAlbum(final JsonWriter writer, final String country, final int index) throws IOException {
+        int    release = settings.markets > 0 ? index + Math.floorMod(country.hashCode(), settings.markets) : index;
+        String id      = "album-" + release;
+        writer.beginObject();
+        writer.name("album_type").value(release % 3 == 0 ? "single" : "album");
+        writer.name("artists").beginArray();
+        for (int a = 0; a <= Math.floorMod(release, 3); a++) {
+            int artist = Math.floorMod(release * 7 + a * 13, Math.max(1, settings.releases / 3));
+            writer.beginObject();
+            writer.name("id").value("artist-" + artist);
+            writer.name("name").value(capitalize(words(artist * 17 + 3, 1 + artist % 2)));
+            writer.name("type").value("artist");
+            writer.endObject();
+        }
+        writer.endArray();
+        writer.name("external_urls").beginObject()
+              .name("spotify").value("https://open.spotify.com/album/" + id).endObject();
+        writer.name("href").value("https://api.spotify.com/v1/albums/" + id);
+        writer.name("id").value(id);
+        writer.name("name").value(capitalize(words(release * 31 + 11, 1 + release % 4)));
+        writer.name("release_date").value("2026-10-" + (1 + release % 28 < 10 ? "0" : "") + (1 + release % 28));
+        writer.name("total_tracks").value(1 + release % 18);
+        writer.name("type").value("album");
+        writer.name("uri").value("spotify:album:" + id);
+        writer.endObject();
+    }
+
+    private void writeCategory(final JsonWriter writer, final int index) throws IOException {
+        writer.beginObject();
+        writer.name("href").value("https://api.spotify.com/v1/browse/categories/category-" + index);
+        writer.name("id").value("category-" + index);
+        writer.name("name").value(capitalize(words(index * 41 + 5, 1 + index % 2)) + " " + index);
+        writer.endObject();
+    }
+
+    private static int categoryIndex(final String id) {
+        if (!id.startsWith("category-")) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(id.substring("category-".length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String words(final int seed, final int count) {
+        StringBuilder words = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                words.append(' ');
+            }
+            words.append(WORDS[Math.floorMod(seed * (i + 3) + i * 101, WORDS.length)]);
+        }
+        return words.toString();
+    }
+
+    private static String capitalize(final String words) {
+        return Character.toUpperCase(words.charAt(0)) + words.substring(1);
+    }
+
+    private static byte[] gzip(final byte[] body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(body);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String etag(final byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 22) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The configuration of the mock server, read from the same kind of arguments as the application's.
+     */
+    public static class Settings {
+        private int     port          = 9090;
+        private int     categories    = 50;
+        private int     playlists     = 100;
+        private int     featured      = 100;
+        private int     releases      = 100;
+        private int     markets       = 0;
+        private int     revision      = 1;
+        private long    latency       = 0;
+        private long    jitter        = 0;
+        private double  errorRate     = 0;
+        private double  throttleRate  = 0;
+        private int     retryAfter    = 1;
+        private int     tokenLifetime = 3600;
+        private boolean gzip          = true;
+
+        /**
+         * Reads the settings from the arguments, ignoring the ones that aren't given or are invalid:
+         * {@code -port}, {@code -categories}, {@code -playlists} per category, {@code -featured},
+         * {@code -releases}, {@code -markets} of distinct new releases per country, {@code -revision} of the
+         * playlist snapshots, {@code -latency} and {@code -jitter} in milliseconds, {@code -errors} and
+         * {@code -throttle} as the rate of 5xx and 429 responses, {@code -retry-after} in seconds
+         * {@code -token-lifetime} in seconds and {@code -gzip off} to never compress responses.
+         * @param  arguments - the program arguments.
+         * @return the settings.
+         */
+        public static Settings fromArguments(final List<String> arguments) {
+            Settings settings = new Settings();
+            settings.port = (int) number(arguments, "-port", settings.port);
+            settings.categories = (int) number(arguments, "-categories", settings.categories);
+            settings.playlists = (int) number(arguments, "-playlists", settings.playlists);
+            settings.featured = (int) number(arguments, "-featured", settings.featured);
+            settings.releases = (int) number(arguments, "-releases", settings.releases);
+            settings.markets = (int) number(arguments, "-markets", settings.markets);
+            settings.revision = (int) number(arguments, "-revision", settings.revision);
+            settings.latency = (long) number(arguments, "-latency", settings.latency);
+            settings.jitter = (long) number(arguments, "-jitter", settings.jitter);
+            settings.errorRate = number(arguments, "-errors", settings.errorRate);
+            settings.throttleRate = number(arguments, "-throttle", settings.throttleRate);
+            settings.retryAfter = (int) number(arguments, "-retry-after", settings.retryAfter);
+            settings.tokenLifetime = (int) number(arguments, "-token-lifetime", settings.tokenLifetime);
+            settings.gzip = !arguments.contains("-gzip") || arguments.indexOf("-gzip") + 1 >= arguments.size() ||
+                            !arguments.get(arguments.indexOf("-gzip") + 1).equals("off");
+            return settings;
+        }
+
+        public Settings port(final int port) {
+            this.port = port;
+            return this;
+        }
+
+        public String getUrl() {
+            return "http://localhost:" + port;
+        }
+
+        private static double number(final List<String> arguments, final String name, final double fallback) {
+            int index = arguments.indexOf(name);
+            if (index < 0 || index + 1 >= arguments.size()) {
+                return fallback;
+            }
+            try {
+                return Double.parseDouble(arguments.get(index + 1));
+            } catch (NumberFormatException e) {
+                return fallback;
+            }
+        }
+    }
+
+    /**
+     * A status code along with the JSON body to respond with.
+     */
+    private static class Response {
+        private final int    status;
+        private final byte[] body;
+
+        private Response(final int status, final byte[] body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        private static Response json(final int status, final FieldWriter fields) throws IOException {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8))) {
+                writer.beginObject();
+                fields.write(writer);
+                writer.endObject();
+            }
+            return new Response(status, body.toByteArray());
+        }
+
+        private static Response error(final int status, final String message) {
+            try {
+                return json(status, writer -> writer.name("error").beginObject()
+                                                    .name("status").value(status)
+                                                    .name("message").value(message)
+                                                    .endObject());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Response handle(HttpExchange exchange) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface FieldWriter {
+        void write(JsonWriter writer) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface ItemWriter {
+        void write(JsonWriter writer, int index) throws IOException;
+    }
+}
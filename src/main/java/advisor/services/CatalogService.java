@@ -0,0 +1,254 @@
+package advisor.services;
+
+import advisor.entities.Category;
+import advisor.entities.Page;
+import advisor.utils.Events;
+import advisor.utils.Metrics;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the browsable catalog, every featured playlist, new release and category, as an immutable
+ * {@link advisor.services.CatalogService.Catalog} that a background thread rebuilds on a schedule and swaps in
+ * atomically. Readers take the current catalog without locking, so they never wait for a refresh nor see one half
+ * done, and page through it without requests. Endpoints missing from the catalog, because it wasn't built yet or
+ * the last refresh of the endpoint failed, are fetched through the {@link advisor.services.PageService} instead.
+ *
+ * <p>The catalog is refreshed with the credentials given to the service only, which in server mode are the ones of
+ * the command line user, stored by a previous {@code auth}, rather than the ones of any session. Without them
+ * no refresh runs, and sessions browse the catalog as their own requests, and the categories they load, fill it.
+ *
+ * @author Alex Giazitzis
+ */
+public class CatalogService {
+    private static final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "catalog-refresher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final PageService              pages;
+    private final ParserService            service;
+    private final TokenService             tokens;
+    private final AtomicReference<Catalog> catalog = new AtomicReference<>(
+            new Catalog(Map.of(), new CategoryIndex(List.of()), null));
+    private       ScheduledFuture<?>       task;
+
+    /**
+     * @param pages - the {@link advisor.services.PageService} the catalog is fetched with.
+     * @param service - the {@link advisor.services.ParserService} the catalog is parsed with.
+     * @param tokens - the credentials the catalog is fetched with, as it's only refreshed while they're authorized.
+     */
+    public CatalogService(final PageService pages, final ParserService service, final TokenService tokens) {
+        this.pages = pages;
+        this.service = service;
+        this.tokens = tokens;
+    }
+
+    /**
+     * Refreshes the catalog now and then periodically, until {@link #stop()} is called.
+     * @param period - the time between the end of a refresh and the start of the next, or zero to never refresh.
+     */
+    public synchronized void start(final Duration period) {
+        if (task != null || period.isZero() || period.isNegative()) {
+            return;
+        }
+        task = refresher.scheduleWithFixedDelay(this::refreshQuietly, 0, period.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+    }
+
+    /**
+     * Refreshes the catalog in the background as soon as possible, e.g. once the user was authorized.
+     */
+    public synchronized void refreshSoon() {
+        if (task != null) {
+            refresher.execute(this::refreshQuietly);
+        }
+    }
+
+    /**
+     * @return the current catalog, which never changes once taken.
+     */
+    public Catalog get() {
+        return catalog.get();
+    }
+
+    /**
+     * Returns a page of an endpoint from the current catalog, falling back to the
+     * {@link advisor.services.PageService} for endpoints the catalog doesn't hold.
+     * @see advisor.services.PageService#fetch(String, int, int, PageService.Parser)
+     */
+    public <T> CompletableFuture<Page<T>> fetch(final String endpoint, final int offset, final int limit,
+                                                final PageService.Parser<T> parser) {
+        Page<T> page = catalog.get().page(endpoint, offset, limit);
+        if (page == null) {
+            return pages.fetch(endpoint, offset, limit, parser);
+        }
+        Metrics.count(Metrics.Metric.CACHE_HITS, Metrics.endpoint(endpoint));
+        Events.cacheLookup(Metrics.endpoint(endpoint), "catalog");
+        return CompletableFuture.completedFuture(page);
+    }
+
+    /**
+     * Starts fetching a page in the background, unless the current catalog holds its endpoint.
+     */
+    public <T> void prefetch(final String endpoint, final int offset, final int limit,
+                             final PageService.Parser<T> parser) {
+        if (!catalog.get().holds(endpoint)) {
+            pages.prefetch(endpoint, offset, limit, parser);
+        }
+    }
+
+    /**
+     * Adds the categories loaded by a reader to the current catalog, unless a refresh added them first.
+     * @param categories - every category.
+     */
+    public void putCategories(final List<Category> categories) {
+        Page<Category> page = new Page<>(categories, 0, categories.size(), categories.size());
+        catalog.updateAndGet(current -> current.holds("categories") ? current : current.with("categories", page));
+    }
+
+    /**
+     * Rebuilds the catalog, waiting for stale pages to be revalidated, and swaps it in.
+     * Endpoints that could not be fetched keep their pages of the previous catalog.
+     * @throws InterruptedException if interrupted while waiting for the pages.
+     */
+    public void refresh() throws InterruptedException {
+        Map<String, CompletableFuture<? extends Page<?>>> fetched = new HashMap<>();
+        fetched.put("featured-playlists", pages.fetchEvery("featured-playlists", service::getPlaylists, false));
+        fetched.put("new-releases", pages.fetchEvery("new-releases", service::getAlbums, false));
+        fetched.put("categories", pages.fetchEvery("categories", service::getCategories, false));
+        Map<String, Page<?>> refreshed = new HashMap<>();
+        for (Map.Entry<String, CompletableFuture<? extends Page<?>>> entry : fetched.entrySet()) {
+            try {
+                Page<?> page = entry.getValue().get();
+                if (!page.hasError()) {
+                    refreshed.put(entry.getKey(), page);
+                }
+            } catch (ExecutionException e) {
+                Metrics.count(Metrics.Metric.ERRORS, Metrics.endpoint(entry.getKey()));
+            }
+        }
+        catalog.updateAndGet(current -> {
+            Catalog next = current;
+            for (Map.Entry<String, Page<?>> entry : refreshed.entrySet()) {
+                next = next.with(entry.getKey(), entry.getValue());
+            }
+            return next.refreshedAt(Instant.now());
+        });
+    }
+
+    private void refreshQuietly() {
+        if (!tokens.isAuthorized()) {
+            return;
+        }
+        try {
+            refresh();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * An immutable version of the catalog, holding every item of its endpoints along with
+     * the {@link advisor.services.CategoryIndex} of its categories.
+     */
+    public static final class Catalog {
+        private final Map<String, Page<?>> pages;
+        private final CategoryIndex        categories;
+        private final Instant              refreshed;
+
+        private Catalog(final Map<String, Page<?>> pages, final CategoryIndex categories, final Instant refreshed) {
+            this.pages = Map.copyOf(pages);
+            this.categories = categories;
+            this.refreshed = refreshed;
+        }
+
+        /**
+         * @return whether the catalog holds every item of the endpoint.
+         */
+        public boolean holds(final String endpoint) {
+            return pages.containsKey(endpoint);
+        }
+
+        /**
+         * Returns a page of an endpoint, clamped to the items the catalog holds, so that pages past the end are
+         * empty instead of failing.
+         * @param  endpoint - the endpoint of Spotify's browse API.
+         * @param  offset - the index of the first item of the page.
+         * @param  limit - the maximum amount of items in the page.
+         * @param  <T> - the entity type of the endpoint.
+         * @return the page, or null if the catalog doesn't hold the endpoint.
+         */
+        @SuppressWarnings("unchecked")
+        public <T> Page<T> page(final String endpoint, final int offset, final int limit) {
+            Page<T> all = (Page<T>) pages.get(endpoint);
+            if (all == null) {
+                return null;
+            }
+            return Page.slice(all.getItems(), offset, limit);
+        }
+
+        public CategoryIndex getCategories() {
+            return categories;
+        }
+
+        /**
+         * @return the time of the last refresh, or null if the catalog was never refreshed.
+         */
+        public Instant getRefreshed() {
+            return refreshed;
+        }
+
+        /**
+         * Returns a catalog holding every item of the page for the endpoint, keeping the list of the page as it is,
+         * e.g. a columnar table, as pages are never changed once parsed. The category index is only rebuilt when
+         * the categories changed, which a revalidated page of categories didn't, as it holds the same instances.
+         */
+        @SuppressWarnings("unchecked")
+        private Catalog with(final String endpoint, final Page<?> page) {
+            Map<String, Page<?>> next  = new HashMap<>(pages);
+            CategoryIndex        index = categories;
+            if (endpoint.equals("categories") && !same(categories.getCategories(), page.getItems())) {
+                index = new CategoryIndex((List<Category>) page.getItems());
+            }
+            next.put(endpoint, page);
+            return new Catalog(next, index, refreshed);
+        }
+
+        private static boolean same(final List<?> current, final List<?> next) {
+            if (current.size() != next.size()) {
+                return false;
+            }
+            for (int i = 0; i < current.size(); i++) {
+                if (current.get(i) != next.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private Catalog refreshedAt(final Instant time) {
+            return new Catalog(pages, categories, time);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package advisor.services;
+
+import advisor.entities.Album;
+import advisor.entities.Playlist;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Append-only local mirror of the catalog, written by the {@link advisor.services.CrawlService}.
+ * Every crawled playlist and album is appended to the file as one JSON record per line, with later records of a
+ * playlist superseding the earlier ones. Opening the store replays the file to learn the latest
+ * {@code snapshot_id} of every playlist in every category it was found in, so that a later crawl only appends the
+ * playlists that changed, while a playlist found in one more category is appended for that category too.
+ * Records are never rewritten, so a crawl that is cut short leaves every record it appended intact,
+ * apart from a partly written last line, which is ignored.
+ *
+ * @author Alex Giazitzis
+ */
+public class CatalogStore implements Closeable {
+    private final Path                file;
+    private final Map<String, String> snapshots = new HashMap<>();
+    private final Set<String>         albums    = new HashSet<>();
+    private       FileChannel         channel;
+    private       Writer              writer;
+
+    /**
+     * @param file - the path of the store file.
+     */
+    public CatalogStore(final Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Replays the records of the store file, creating it if missing, and opens it for appending.
+     * @throws IOException if the file could not be read or opened.
+     */
+    public synchronized void open() throws IOException {
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        if (Files.isRegularFile(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    replay(line);
+                }
+            }
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                   StandardOpenOption.APPEND);
+        writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    /**
+     * Appends a playlist, unless its latest record in the same category has the same {@code snapshot_id}.
+     * Playlists without an ID or a {@code snapshot_id} are always appended.
+     * @param  category - the ID of the category the playlist was found in.
+     * @param  playlist - the crawled playlist.
+     * @return true if the playlist was appended, false if it didn't change.
+     * @throws IOException if the record could not be written.
+     */
+    public synchronized boolean putPlaylist(final String category, final Playlist playlist) throws IOException {
+        String key = key(category, playlist.getId());
+        if (playlist.getId() != null && playlist.getSnapshotId() != null &&
+            playlist.getSnapshotId().equals(snapshots.get(key))) {
+            return false;
+        }
+        if (playlist.getId() != null) {
+            snapshots.put(key, playlist.getSnapshotId());
+        }
+        JsonWriter record = new JsonWriter(writer);
+        record.beginObject();
+        record.name("type").value("playlist");
+        record.name("id").value(playlist.getId());
+        record.name("snapshot_id").value(playlist.getSnapshotId());
+        record.name("category").value(category);
+        record.name("name").value(playlist.getName());
+        record.name("url").value(playlist.getUrl());
+        record.name("crawled_at").value(Instant.now().toEpochMilli());
+        record.endObject();
+        writer.write('\n');
+        return true;
+    }
+
+    /**
+     * Appends an album, unless it was appended before. Albums don't change once released.
+     * @param  album - the crawled album.
+     * @return true if the album was appended, false if it's already stored.
+     * @throws IOException if the record could not be written.
+     */
+    public synchronized boolean putAlbum(final Album album) throws IOException {
+        if (!albums.add(album.getUri())) {
+            return false;
+        }
+        JsonWriter record = new JsonWriter(writer);
+        record.beginObject();
+        record.name("type").value("album");
+        record.name("name").value(album.getName());
+        record.name("artists").beginArray();
+        for (String artist : album.getArtists()) {
+            record.value(artist);
+        }
+        record.endArray();
+        record.name("url").value(album.getUri());
+        record.name("crawled_at").value(Instant.now().toEpochMilli());
+        record.endObject();
+        writer.write('\n');
+        return true;
+    }
+
+    /**
+     * @return the amount of distinct playlists stored, counting a playlist once for every category it's in.
+     */
+    public synchronized int getPlaylistCount() {
+        return snapshots.size();
+    }
+
+    /**
+     * Flushes the appended records to the disk and closes the file.
+     * @throws IOException if the records could not be written.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer == null) {
+            return;
+        }
+        writer.flush();
+        channel.force(false);
+        writer.close();
+        writer = null;
+    }
+
+    private void replay(final String line) {
+        if (line.isBlank()) {
+            return;
+        }
+        JsonObject record;
+        try {
+            record = JsonParser.parseString(line).getAsJsonObject();
+        } catch (JsonParseException | IllegalStateException e) {
+            return;
+        }
+        String type = string(record, "type");
+        if ("playlist".equals(type) && string(record, "id") != null) {
+            snapshots.put(key(string(record, "category"), string(record, "id")), string(record, "snapshot_id"));
+        } else if ("album".equals(type)) {
+            albums.add(string(record, "url"));
+        }
+    }
+
+    private static String key(final String category, final String id) {
+        return category + '/' + id;
+    }
+
+    private static String string(final JsonObject record, final String name) {
+        return record.has(name) && !record.get(name).isJsonNull() ? record.get(name).getAsString() : null;
+    }
+}
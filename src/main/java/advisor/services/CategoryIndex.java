@@ -0,0 +1,157 @@
+package advisor.services;
+
+import advisor.entities.Category;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Index of {@link advisor.entities.Category} by name, built once the categories are loaded.
+ * Names are normalized, ignoring case, accents and extra whitespace, and looked up through a hash map,
+ * while a trie over the normalized names answers prefix queries in time proportional to the prefix.
+ * Names that match no category can be given the closest category names as suggestions.
+ *
+ * @author Alex Giazitzis
+ */
+public class CategoryIndex {
+    private final List<Category>        categories;
+    private final Map<String, Category> byName = new HashMap<>();
+    private final Node                  root   = new Node();
+
+    public CategoryIndex(final List<Category> categories) {
+        this.categories = List.copyOf(categories);
+        for (Category category : this.categories) {
+            String name = normalize(category.getName());
+            byName.putIfAbsent(name, category);
+            Node node = root;
+            for (int i = 0; i < name.length(); i++) {
+                node = node.children.computeIfAbsent(name.charAt(i), c -> new Node());
+            }
+            node.categories.add(category);
+        }
+    }
+
+    /**
+     * Normalizes a category name for lookups, by stripping accents, lower casing and collapsing whitespace.
+     * @param  name - the category name.
+     * @return the normalized name.
+     */
+    public static String normalize(final String name) {
+        return Normalizer.normalize(name, Normalizer.Form.NFD)
+                         .replaceAll("\\p{M}", "")
+                         .toLowerCase(Locale.ROOT)
+                         .trim()
+                         .replaceAll("\\s+", " ");
+    }
+
+    public List<Category> getCategories() {
+        return categories;
+    }
+
+    public boolean isEmpty() {
+        return categories.isEmpty();
+    }
+
+    /**
+     * @param  name - the category name, in any case.
+     * @return the category with the given name, or null if there is none.
+     */
+    public Category find(final String name) {
+        return byName.get(normalize(name));
+    }
+
+    /**
+     * @param  prefix - the start of the category names, in any case.
+     * @param  max - the maximum amount of categories to return.
+     * @return the categories whose names start with the prefix, in alphabetical order of their names.
+     */
+    public List<Category> withPrefix(final String prefix, final int max) {
+        String name = normalize(prefix);
+        Node   node = root;
+        for (int i = 0; i < name.length() && node != null; i++) {
+            node = node.children.get(name.charAt(i));
+        }
+        List<Category> found = new ArrayList<>();
+        if (node == null) {
+            return found;
+        }
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(node);
+        while (!pending.isEmpty() && found.size() < max) {
+            Node current = pending.pop();
+            for (Category category : current.categories) {
+                if (found.size() < max) {
+                    found.add(category);
+                }
+            }
+            current.children.descendingMap().values().forEach(pending::push);
+        }
+        return found;
+    }
+
+    /**
+     * Suggests categories for a name that matches none, starting with the ones whose names start with it,
+     * followed by the ones whose names are the fewest edits away from it.
+     * @param  name - the category name that matched no category.
+     * @param  max - the maximum amount of suggestions.
+     * @return the suggested categories, closest first.
+     */
+    public List<Category> suggest(final String name, final int max) {
+        String        normalized  = normalize(name);
+        Set<Category> suggestions = new LinkedHashSet<>(withPrefix(normalized, max));
+        int           maxEdits    = Math.max(2, normalized.length() / 3);
+        categories.stream()
+                  .filter(c -> !suggestions.contains(c))
+                  .map(c -> Map.entry(c, distance(normalized, normalize(c.getName()), maxEdits)))
+                  .filter(e -> e.getValue() <= maxEdits)
+                  .sorted(Comparator.comparing(Map.Entry::getValue))
+                  .limit(Math.max(0, max - suggestions.size()))
+                  .forEach(e -> suggestions.add(e.getKey()));
+        return new ArrayList<>(suggestions);
+    }
+
+    /**
+     * Levenshtein distance between two strings, giving up with {@code max + 1} as soon as it exceeds the maximum.
+     */
+    private static int distance(final String a, final String b, final int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current  = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private static class Node {
+        private final TreeMap<Character, Node> children   = new TreeMap<>();
+        private final List<Category>           categories = new ArrayList<>(1);
+    }
+}
@@ -0,0 +1,244 @@
+package advisor.services;
+
+import advisor.entities.Album;
+import advisor.entities.Category;
+import advisor.entities.Page;
+import advisor.entities.Playlist;
+import advisor.utils.Utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Walks the whole catalog, every page of the categories, of the playlists of every category and of the new
+ * releases, into a {@link advisor.services.CatalogStore}. Pages are requested in parallel, with at most the given
+ * amount in flight, and every page that arrives queues the pages it leads to, so the crawl never waits for one
+ * endpoint to finish before moving on to the next. Playlists whose {@code snapshot_id} didn't change since the
+ * last crawl of their category are not stored again. The pages should be fetched through a
+ * {@link advisor.services.PageService} of their own, so the crawl doesn't push the pages being browsed out of
+ * the cache. A time budget stops the crawl from requesting more pages once it runs out,
+ * leaving the pages already requested to complete.
+ *
+ * @author Alex Giazitzis
+ */
+public class CrawlService {
+    private static final Task<?> DONE = new Task<>(null, 0, null, null);
+
+    private final PageService   pages;
+    private final ParserService service;
+
+    /**
+     * @param pages - the {@link advisor.services.PageService} the pages are fetched with.
+     * @param service - the {@link advisor.services.ParserService} the pages are parsed with.
+     */
+    public CrawlService(final PageService pages, final ParserService service) {
+        this.pages = pages;
+        this.service = service;
+    }
+
+    /**
+     * Crawls the catalog into the store, returning once every requested page completed.
+     * @param  store - the open store to append the crawled playlists and albums to.
+     * @param  concurrency - the maximum amount of pages in flight.
+     * @param  budget - the time after which no more pages are requested, or null for no limit.
+     * @return the outcome of the crawl.
+     * @throws InterruptedException if interrupted while waiting for pages.
+     */
+    public Result crawl(final CatalogStore store, final int concurrency, final Duration budget)
+            throws InterruptedException {
+        Crawl crawl = new Crawl(store, concurrency, budget);
+        crawl.enqueue(new Task<>("categories", 0, service::getCategories, page -> {
+            crawl.enqueueRest("categories", page, service::getCategories, rest -> onCategories(crawl, rest));
+            onCategories(crawl, page);
+        }));
+        crawl.enqueue(new Task<>("new-releases", 0, service::getAlbums, page -> {
+            crawl.enqueueRest("new-releases", page, service::getAlbums, rest -> onAlbums(crawl, rest));
+            onAlbums(crawl, page);
+        }));
+        return crawl.run();
+    }
+
+    private void onCategories(final Crawl crawl, final Page<Category> page) {
+        for (Category category : page.getItems()) {
+            String endpoint = Utils.playlistsEndpoint.apply(category.getId());
+            crawl.enqueue(new Task<>(endpoint, 0, service::getPlaylists, first -> {
+                crawl.enqueueRest(endpoint, first, service::getPlaylists, rest -> onPlaylists(crawl, category, rest));
+                onPlaylists(crawl, category, first);
+            }));
+        }
+    }
+
+    private void onPlaylists(final Crawl crawl, final Category category, final Page<Playlist> page) {
+        for (Playlist playlist : page.getItems()) {
+            try {
+                if (crawl.store.putPlaylist(category.getId(), playlist)) {
+                    crawl.result.changed.incrementAndGet();
+                } else {
+                    crawl.result.unchanged.incrementAndGet();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void onAlbums(final Crawl crawl, final Page<Album> page) {
+        for (Album album : page.getItems()) {
+            try {
+                if (crawl.store.putAlbum(album)) {
+                    crawl.result.albums.incrementAndGet();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * The state of one crawl: the queue of pages to request and the count of pages queued or in flight,
+     * which reaches zero only once the last page completed without queueing any more.
+     */
+    private class Crawl {
+        private final CatalogStore           store;
+        private final Semaphore              permits;
+        private final long                   deadline;
+        private final BlockingQueue<Task<?>> queue   = new LinkedBlockingQueue<>();
+        private final AtomicInteger          pending = new AtomicInteger();
+        private final Result                 result  = new Result();
+        private final long                   start   = System.nanoTime();
+
+        private Crawl(final CatalogStore store, final int concurrency, final Duration budget) {
+            this.store = store;
+            this.permits = new Semaphore(Math.max(1, concurrency));
+            this.deadline = budget == null ? Long.MAX_VALUE : start + budget.toNanos();
+        }
+
+        private void enqueue(final Task<?> task) {
+            pending.incrementAndGet();
+            queue.add(task);
+        }
+
+        /**
+         * Queues the pages of an endpoint that follow its first page, stepping by the limit the first page was
+         * served with, as a page may hold fewer items than its limit without being the last one.
+         */
+        private <T> void enqueueRest(final String endpoint, final Page<T> first, final PageService.Parser<T> parser,
+                                     final Consumer<Page<T>> onPage) {
+            if (first.getItems().isEmpty()) {
+                return;
+            }
+            int step = first.getLimit() > 0 ? first.getLimit() : PageService.MAX_LIMIT;
+            for (int offset = first.getOffset() + step; offset < first.getTotal(); offset += step) {
+                enqueue(new Task<>(endpoint, offset, parser, onPage));
+            }
+        }
+
+        private Result run() throws InterruptedException {
+            Task<?> task;
+            while ((task = queue.take()) != DONE) {
+                if (System.nanoTime() > deadline) {
+                    result.skipped.incrementAndGet();
+                    complete();
+                    continue;
+                }
+                permits.acquire();
+                request(task);
+            }
+            result.elapsed = Duration.ofNanos(System.nanoTime() - start);
+            return result;
+        }
+
+        private <T> void request(final Task<T> task) {
+            pages.fetch(task.endpoint, task.offset, PageService.MAX_LIMIT, task.parser, false)
+                 .whenComplete((page, e) -> {
+                     permits.release();
+                     try {
+                         if (e != null || page.hasError()) {
+                             result.failed.incrementAndGet();
+                         } else {
+                             result.pages.incrementAndGet();
+                             task.onPage.accept(page);
+                         }
+                     } catch (UncheckedIOException failure) {
+                         result.failed.incrementAndGet();
+                     } finally {
+                         complete();
+                     }
+                 });
+        }
+
+        private void complete() {
+            if (pending.decrementAndGet() == 0) {
+                queue.add(DONE);
+            }
+        }
+    }
+
+    /**
+     * A page to request, along with what to do with it once it arrives.
+     */
+    private static class Task<T> {
+        private final String                endpoint;
+        private final int                   offset;
+        private final PageService.Parser<T> parser;
+        private final Consumer<Page<T>>     onPage;
+
+        private Task(final String endpoint, final int offset, final PageService.Parser<T> parser,
+                     final Consumer<Page<T>> onPage) {
+            this.endpoint = endpoint;
+            this.offset = offset;
+            this.parser = parser;
+            this.onPage = onPage;
+        }
+    }
+
+    /**
+     * The outcome of a crawl.
+     */
+    public static class Result {
+        private final AtomicInteger pages     = new AtomicInteger();
+        private final AtomicInteger failed    = new AtomicInteger();
+        private final AtomicInteger skipped   = new AtomicInteger();
+        private final AtomicInteger changed   = new AtomicInteger();
+        private final AtomicInteger unchanged = new AtomicInteger();
+        private final AtomicInteger albums    = new AtomicInteger();
+        private       Duration      elapsed;
+
+        public int getPages() {
+            return pages.get();
+        }
+
+        public int getFailed() {
+            return failed.get();
+        }
+
+        /**
+         * @return the amount of pages not requested because the time budget ran out.
+         */
+        public int getSkipped() {
+            return skipped.get();
+        }
+
+        public int getChanged() {
+            return changed.get();
+        }
+
+        public int getUnchanged() {
+            return unchanged.get();
+        }
+
+        public int getAlbums() {
+            return albums.get();
+        }
+
+        public Duration getElapsed() {
+            return elapsed;
+        }
+    }
+}
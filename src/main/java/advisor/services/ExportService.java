@@ -0,0 +1,193 @@
+package advisor.services;
+
+import advisor.entities.Category;
+import advisor.entities.Page;
+import advisor.utils.Utils;
+import advisor.view.CsvView;
+import advisor.view.JsonView;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Exports every item of endpoints into a file, as one JSON record per line (NDJSON) or as CSV rows.
+ * Endpoints are paged through with up to the given amount of pages in flight, and every page is written out
+ * in order as soon as it arrives, so memory holds at most that many pages however many items are exported.
+ * Items are parsed without being added to the {@link advisor.services.SearchIndex}, which would keep them all.
+ *
+ * @author Alex Giazitzis
+ */
+public class ExportService implements Closeable {
+    private final PageService   pages;
+    private final ParserService service = new ParserService();
+    private final int           concurrency;
+    private final boolean       csv;
+    private final FileChannel   channel;
+    private final Writer        out;
+    private final long          start   = System.nanoTime();
+    private       int           rows    = 0;
+    private       int           failed  = 0;
+
+    /**
+     * Creates the export file, replacing any previous one.
+     * @param  pages - the {@link advisor.services.PageService} the pages are fetched with.
+     * @param  file - the path of the export file.
+     * @param  format - either {@code ndjson} or {@code csv}.
+     * @param  concurrency - the maximum amount of pages in flight.
+     * @throws IOException if the file could not be created.
+     */
+    public ExportService(final PageService pages, final Path file, final String format, final int concurrency)
+            throws IOException {
+        this.pages = pages;
+        this.concurrency = Math.max(1, concurrency);
+        this.csv = "csv".equalsIgnoreCase(format);
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                        StandardOpenOption.TRUNCATE_EXISTING);
+        this.out = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), 1 << 16);
+        if (csv) {
+            out.write(CsvView.HEADER);
+            out.write("\r\n");
+        }
+    }
+
+    public void exportFeatured() throws IOException, InterruptedException {
+        export("featured-playlists", service::getPlaylists, null);
+    }
+
+    public void exportNew() throws IOException, InterruptedException {
+        export("new-releases", service::getAlbums, null);
+    }
+
+    /**
+     * @return every exported category, for the export of their playlists.
+     */
+    public List<Category> exportCategories() throws IOException, InterruptedException {
+        List<Category> categories = new ArrayList<>();
+        export("categories", json -> {
+            Page<Category> page = service.getCategories(json);
+            categories.addAll(page.getItems());
+            return page;
+        }, null);
+        return categories;
+    }
+
+    public void exportPlaylists(final Category category) throws IOException, InterruptedException {
+        export(Utils.playlistsEndpoint.apply(category.getId()), service::getPlaylists, category.getId());
+    }
+
+    /**
+     * Exports the featured playlists, the new releases, the categories and the playlists of every category.
+     */
+    public void exportAll() throws IOException, InterruptedException {
+        exportFeatured();
+        exportNew();
+        for (Category category : exportCategories()) {
+            exportPlaylists(category);
+        }
+    }
+
+    /**
+     * @return the amount of items written so far.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the amount of pages that could not be fetched, whose items are missing from the export.
+     */
+    public int getFailed() {
+        return failed;
+    }
+
+    public Duration getElapsed() {
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    /**
+     * Flushes the exported items to the disk and closes the file.
+     * @throws IOException if the items could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        out.flush();
+        channel.force(false);
+        out.close();
+    }
+
+    /**
+     * Pages through an endpoint, keeping a window of pages in flight and writing the oldest as it arrives.
+     * Offsets step by the limit the first page was served with, as a page may hold fewer items than its limit.
+     */
+    private <T> void export(final String endpoint, final PageService.Parser<T> parser, final String category)
+            throws IOException, InterruptedException {
+        Page<T> first = await(pages.fetch(endpoint, 0, PageService.MAX_LIMIT, parser, false));
+        if (first == null) {
+            return;
+        }
+        write(first, category);
+        Deque<CompletableFuture<Page<T>>> window = new ArrayDeque<>();
+        int                               step   = first.getLimit() > 0 ? first.getLimit() : PageService.MAX_LIMIT;
+        int                               next   = first.getItems().isEmpty() ? first.getTotal()
+                                                                              : first.getOffset() + step;
+        while (next < first.getTotal() || !window.isEmpty()) {
+            while (window.size() < concurrency && next < first.getTotal()) {
+                window.add(pages.fetch(endpoint, next, PageService.MAX_LIMIT, parser, false));
+                next += step;
+            }
+            Page<T> page = await(window.poll());
+            if (page != null) {
+                write(page, category);
+            }
+        }
+    }
+
+    private <T> Page<T> await(final CompletableFuture<Page<T>> page) throws InterruptedException {
+        try {
+            Page<T> result = page.get();
+            if (!result.hasError()) {
+                return result;
+            }
+        } catch (ExecutionException ignored) {
+        }
+        failed++;
+        return null;
+    }
+
+    private void write(final Page<?> page, final String category) throws IOException {
+        for (Object item : page.getItems()) {
+            if (csv) {
+                CsvView.writeRow(out, item, category);
+            } else {
+                JsonWriter record = new JsonWriter(out);
+                record.beginObject();
+                JsonView.writeFields(record, item);
+                if (category != null) {
+                    record.name("category").value(category);
+                }
+                record.endObject();
+                out.write('\n');
+            }
+            rows++;
+        }
+    }
+}
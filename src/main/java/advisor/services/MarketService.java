@@ -0,0 +1,155 @@
+package advisor.services;
+
+import advisor.entities.Album;
+import advisor.entities.MarketAlbum;
+import advisor.entities.Page;
+import advisor.utils.Utils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Merges the new releases of many markets into one ranked list of {@link advisor.entities.MarketAlbum}.
+ * The new releases of every market are fetched concurrently, and each market is merged as soon as it arrives into
+ * a concurrent map keyed by album ID, so that an album listed in many markets appears once, recording every
+ * market it was listed in. Albums listed in more markets rank first, then the ones listed higher in any market.
+ *
+ * @author Alex Giazitzis
+ */
+public class MarketService {
+    private final PageService   pages;
+    private final ParserService service;
+
+    /**
+     * @param pages - the {@link advisor.services.PageService} the new releases are fetched with.
+     * @param service - the {@link advisor.services.ParserService} the new releases are parsed with.
+     */
+    public MarketService(final PageService pages, final ParserService service) {
+        this.pages = pages;
+        this.service = service;
+    }
+
+    /**
+     * Reads a comma separated list of markets, upper-casing them and dropping the repeated ones.
+     * @param  codes - the ISO 3166-1 alpha-2 country codes, e.g. {@code us,GB, DE}.
+     * @return the markets, or {@code null} if any of them isn't a country code.
+     */
+    public static List<String> parse(final String codes) {
+        List<String> selected = new ArrayList<>();
+        for (String code : codes.split(",")) {
+            String market = code.trim().toUpperCase();
+            if (!market.matches("[A-Z]{2}")) {
+                return null;
+            }
+            if (!selected.contains(market)) {
+                selected.add(market);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Fetches the new releases of every market and merges them.
+     * @param  markets - the ISO 3166-1 alpha-2 country codes of the markets.
+     * @return the outcome of the merge.
+     * @throws InterruptedException if interrupted while waiting for the new releases.
+     */
+    public Result aggregate(final List<String> markets) throws InterruptedException {
+        Result                     result  = new Result();
+        Map<String, Entry>         entries = new ConcurrentHashMap<>();
+        List<CompletableFuture<?>> pending = new ArrayList<>();
+        for (String market : markets) {
+            pending.add(pages.fetchEvery(Utils.newReleasesEndpoint.apply(market), service::getAlbums)
+                             .whenComplete((page, e) -> {
+                                 if (e != null || page.hasError()) {
+                                     result.failed.add(market);
+                                 } else {
+                                     merge(entries, market, page);
+                                 }
+                             }));
+        }
+        try {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).get();
+        } catch (ExecutionException e) {
+            // Failed markets were already recorded as they completed.
+        }
+
+        Comparator<MarketAlbum> rank = Comparator.comparing((MarketAlbum album) -> album.getMarkets().size())
+                                                 .reversed()
+                                                 .thenComparingInt(MarketAlbum::getPosition)
+                                                 .thenComparing(album -> album.getAlbum().getName(),
+                                                                Comparator.nullsLast(Comparator.naturalOrder()));
+        for (Entry entry : entries.values()) {
+            List<String> listed = new ArrayList<>(markets);
+            listed.retainAll(entry.markets);
+            result.albums.add(new MarketAlbum(entry.album, listed, entry.position.get()));
+        }
+        result.albums.sort(rank);
+        result.elapsed = Duration.ofNanos(System.nanoTime() - result.start);
+        return result;
+    }
+
+    private static void merge(final Map<String, Entry> entries, final String market, final Page<Album> page) {
+        List<Album> albums = page.getItems();
+        for (int i = 0; i < albums.size(); i++) {
+            Album  album = albums.get(i);
+            String id    = album.getId() != null ? album.getId() : album.getName();
+            if (id == null) {
+                continue;
+            }
+            Entry entry = entries.computeIfAbsent(id, key -> new Entry(album));
+            entry.markets.add(market);
+            entry.position.accumulateAndGet(i, Math::min);
+        }
+    }
+
+    /**
+     * An album being merged: the markets it was found in so far and its highest position among them.
+     */
+    private static class Entry {
+        private final Album         album;
+        private final Set<String>   markets  = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger position = new AtomicInteger(Integer.MAX_VALUE);
+
+        private Entry(final Album album) {
+            this.album = album;
+        }
+    }
+
+    /**
+     * The outcome of a merge.
+     */
+    public static class Result {
+        private final List<MarketAlbum> albums  = new ArrayList<>();
+        private final List<String>      failed  = new CopyOnWriteArrayList<>();
+        private final long              start   = System.nanoTime();
+        private       Duration          elapsed;
+
+        /**
+         * @return the merged albums, ranked.
+         */
+        public List<MarketAlbum> getAlbums() {
+            return albums;
+        }
+
+        /**
+         * @return the markets whose new releases could not be fetched.
+         */
+        public List<String> getFailed() {
+            return failed;
+        }
+
+        public Duration getElapsed() {
+            return elapsed;
+        }
+    }
+}
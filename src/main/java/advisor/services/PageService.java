@@ -0,0 +1,330 @@
+package advisor.services;
+
+import advisor.entities.Page;
+import advisor.utils.CountingInputStream;
+import advisor.utils.Events;
+import advisor.utils.Metrics;
+import advisor.utils.Utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Fetches pages of Spotify's browse endpoints with server side limit/offset paging.
+ * Pages are keyed by (endpoint, offset, limit) and fetched asynchronously, so a page requested
+ * ahead of time with {@link #prefetch(String, int, int, Parser)} is served without another request.
+ * Fetched pages are kept in a {@link advisor.services.ResponseCache} and revalidated with their ETag once stale,
+ * with stale pages being served while they're revalidated in the background.
+ * Requests rejected because the access token expired are sent again once the token is refreshed,
+ * while identical requests in flight share one response through the {@link advisor.services.RequestScheduler}.
+ *
+ * @author Alex Giazitzis
+ */
+public class PageService {
+    /**
+     * The maximum amount of items Spotify returns in a single page.
+     */
+    public static final int MAX_LIMIT = 50;
+
+    private static final ExecutorService parsers = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "page-parser");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final RequestScheduler scheduler;
+    private final TokenService     tokens;
+    private final ResponseCache    cache;
+
+    public PageService(final RequestScheduler scheduler, final TokenService tokens, final ResponseCache cache) {
+        this.scheduler = scheduler;
+        this.tokens = tokens;
+        this.cache = cache;
+    }
+
+    /**
+     * Returns the requested page, from the cache if it's fresh or servable while stale there, sending a
+     * request otherwise unless the same page is already being fetched. Stale pages are revalidated in the background.
+     * @param  endpoint - the endpoint of Spotify's browse API, e.g. {@code featured-playlists}.
+     * @param  offset - the index of the first item of the page.
+     * @param  limit - the maximum amount of items in the page.
+     * @param  parser - the parser that turns the response body into a {@link advisor.entities.Page}.
+     * @param  <T> - the entity type of the page.
+     * @return a {@link java.util.concurrent.CompletableFuture} of the page.
+     */
+    public <T> CompletableFuture<Page<T>> fetch(final String endpoint, final int offset, final int limit,
+                                                final Parser<T> parser) {
+        return fetch(endpoint, offset, limit, parser, true);
+    }
+
+    /**
+     * Returns the requested page as {@link #fetch(String, int, int, Parser)} does, but waits for stale pages
+     * to be revalidated if asked to, for callers that need the current version of the page.
+     * @param  serveStale - whether a stale page may be returned while it's revalidated.
+     */
+    @SuppressWarnings("unchecked")
+    <T> CompletableFuture<Page<T>> fetch(final String endpoint, final int offset, final int limit,
+                                         final Parser<T> parser, final boolean serveStale) {
+        String              paged   = Utils.pagedEndpoint(endpoint, offset, limit);
+        HttpRequest         request = Utils.getRequest.apply(tokens.getAccessToken(), paged);
+        String              key     = request.uri().toString();
+        String              label   = Metrics.endpoint(endpoint);
+        ResponseCache.Entry cached  = cache.get(key);
+        if (cached != null && cached.isFresh()) {
+            Metrics.count(Metrics.Metric.CACHE_HITS, label);
+            Events.cacheLookup(label, "fresh");
+            return CompletableFuture.completedFuture((Page<T>) cached.getPage());
+        }
+        CompletableFuture<Page<T>> page = scheduler.singleFlight(
+                key, () -> send(request, paged, endpoint, cached, parser, true));
+        page.whenComplete((result, e) -> {
+            if (e != null) {
+                Metrics.count(Metrics.Metric.ERRORS, label);
+            }
+        });
+        if (serveStale && cached != null && cached.isServableStale()) {
+            Metrics.count(Metrics.Metric.CACHE_HITS, label);
+            Events.cacheLookup(label, "stale");
+            return CompletableFuture.completedFuture((Page<T>) cached.getPage());
+        }
+        Metrics.count(Metrics.Metric.CACHE_MISSES, label);
+        Events.cacheLookup(label, "miss");
+        return page;
+    }
+
+    /**
+     * Starts fetching a page in the background, so that a later {@link #fetch} returns without waiting.
+     */
+    public <T> void prefetch(final String endpoint, final int offset, final int limit, final Parser<T> parser) {
+        fetch(endpoint, offset, limit, parser);
+    }
+
+    /**
+     * Fetches every item of an endpoint. The first page is fetched alone to learn the total amount of items,
+     * with the rest of the pages being fetched in parallel after it.
+     * @param  endpoint - the endpoint of Spotify's browse API.
+     * @param  parser - the parser that turns the response bodies into {@link advisor.entities.Page}.
+     * @param  <T> - the entity type of the pages.
+     * @return a {@link java.util.concurrent.CompletableFuture} of a single page holding every item,
+     *         or of the first error page met.
+     */
+    public <T> CompletableFuture<Page<T>> fetchEvery(final String endpoint, final Parser<T> parser) {
+        return fetchEvery(endpoint, parser, true);
+    }
+
+    /**
+     * Fetches every item of an endpoint as {@link #fetchEvery(String, Parser)} does, but waits for stale pages
+     * to be revalidated if asked to.
+     * @param  serveStale - whether stale pages may be used while they're revalidated.
+     */
+    <T> CompletableFuture<Page<T>> fetchEvery(final String endpoint, final Parser<T> parser,
+                                              final boolean serveStale) {
+        return fetch(endpoint, 0, MAX_LIMIT, parser, serveStale).thenCompose(first -> {
+            if (first.hasError() || first.getItems().size() >= first.getTotal()) {
+                return CompletableFuture.completedFuture(first);
+            }
+            List<CompletableFuture<Page<T>>> rest = new ArrayList<>();
+            for (int offset = MAX_LIMIT; offset < first.getTotal(); offset += MAX_LIMIT) {
+                rest.add(fetch(endpoint, offset, MAX_LIMIT, parser, serveStale));
+            }
+            return CompletableFuture.allOf(rest.toArray(new CompletableFuture<?>[0])).thenApply(unused -> {
+                List<T> items = new ArrayList<>(first.getItems());
+                for (CompletableFuture<Page<T>> page : rest) {
+                    if (page.join().hasError()) {
+                        return page.join();
+                    }
+                    items.addAll(page.join().getItems());
+                }
+                return new Page<>(items, 0, items.size(), first.getTotal());
+            });
+        });
+    }
+
+    /**
+     * Fetches the same page of many endpoints in parallel, with at most the given amount of requests in flight,
+     * handing each page over as soon as it's fetched. The calling thread is blocked only while waiting for a
+     * request slot to free up. A request that could not even be sent is handed over as a failure too, so its slot
+     * is always freed.
+     * @param  endpoints - the endpoints of Spotify's browse API to fetch.
+     * @param  offset - the index of the first item of every page.
+     * @param  limit - the maximum amount of items in every page.
+     * @param  parser - the parser that turns the response bodies into {@link advisor.entities.Page}.
+     * @param  concurrency - the maximum amount of requests in flight.
+     * @param  onPage - called with the endpoint and its page, or the failure, as each request completes.
+     * @param  <T> - the entity type of the pages.
+     * @return a {@link java.util.concurrent.CompletableFuture} completed once every page was handed over.
+     * @throws InterruptedException if interrupted while waiting for a request slot.
+     */
+    public <T> CompletableFuture<Void> fetchAll(final List<String> endpoints, final int offset, final int limit,
+                                                final Parser<T> parser, final int concurrency,
+                                                final Completion<T> onPage) throws InterruptedException {
+        Semaphore              permits = new Semaphore(concurrency);
+        CompletableFuture<?>[] all     = new CompletableFuture<?>[endpoints.size()];
+        for (int i = 0; i < endpoints.size(); i++) {
+            String                     endpoint = endpoints.get(i);
+            CompletableFuture<Page<T>> page;
+            permits.acquire();
+            try {
+                page = fetch(endpoint, offset, limit, parser);
+            } catch (RuntimeException e) {
+                page = CompletableFuture.failedFuture(e);
+            }
+            all[i] = page.handle((result, e) -> {
+                try {
+                    onPage.complete(endpoint, result, e);
+                } finally {
+                    permits.release();
+                }
+                return null;
+            });
+        }
+        return CompletableFuture.allOf(all);
+    }
+
+    /**
+     * Sends the request of a page, conditionally if a stale version of the page is cached,
+     * and sends it once more with a refreshed access token if the current one was rejected.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<Page<T>> send(final HttpRequest request, final String paged, final String endpoint,
+                                                final ResponseCache.Entry cached, final Parser<T> parser,
+                                                final boolean retry) {
+        String              key      = request.uri().toString();
+        String              label    = Metrics.endpoint(endpoint);
+        long                start    = System.nanoTime();
+        Events.HttpExchange exchange = new Events.HttpExchange();
+        exchange.begin();
+        return scheduler.send(cached == null || cached.getEtag() == null
+                              ? request
+                              : Utils.withHeaders(request, "If-None-Match", cached.getEtag()),
+                              HttpResponse.BodyHandlers.ofInputStream())
+                       .thenComposeAsync(response -> {
+                           Metrics.time(Metrics.Metric.HTTP, label, start);
+                           exchange.end();
+                           exchange.endpoint = label;
+                           exchange.uri = key;
+                           exchange.status = response.statusCode();
+                           if (response.statusCode() >= 400) {
+                               Metrics.count(Metrics.Metric.ERRORS, label);
+                           }
+                           if (response.statusCode() == 401 && retry) {
+                               exchange.commit();
+                               closeQuietly(response.body());
+                               refresh(request);
+                               return send(Utils.getRequest.apply(tokens.getAccessToken(), paged), paged, endpoint,
+                                           cached, parser, false);
+                           }
+                           if (response.statusCode() == 304 && cached != null) {
+                               exchange.commit();
+                               closeQuietly(response.body());
+                               cache.put(key, cached.revalidated());
+                               return CompletableFuture.completedFuture((Page<T>) cached.getPage());
+                           }
+                           CountingInputStream wire   = new CountingInputStream(response.body());
+                           CountingInputStream body   = new CountingInputStream(decode(response, wire));
+                           long                parsed = System.nanoTime();
+                           Events.Parse        parse  = new Events.Parse();
+                           parse.begin();
+                           Page<T>             page   = parse(parser, body);
+                           Metrics.time(Metrics.Metric.PARSE, label, parsed);
+                           if (parse.shouldCommit()) {
+                               parse.endpoint = label;
+                               parse.entityType = page.getItems().isEmpty()
+                                                  ? null : page.getItems().get(0).getClass().getSimpleName();
+                               parse.items = page.getItems().size();
+                               parse.bytes = body.getCount();
+                               parse.commit();
+                           }
+                           exchange.bytes = wire.getCount();
+                           exchange.commit();
+                           Metrics.count(Metrics.Metric.BYTES, label, wire.getCount());
+                           Metrics.count(Metrics.Metric.DECODED_BYTES, label, body.getCount());
+                           if (response.statusCode() == 200 && !page.hasError()) {
+                               String etag = response.headers().firstValue("ETag").orElse(null);
+                               cache.put(key, new ResponseCache.Entry(page, etag, body.getCount(),
+                                                                      ResponseCache.ttl(endpoint)));
+                           }
+                           return CompletableFuture.completedFuture(page);
+                       }, parsers);
+    }
+
+    /**
+     * Refreshes the access token the request was rejected with.
+     */
+    private void refresh(final HttpRequest rejected) {
+        String token = rejected.headers().firstValue("Authorization").orElse("").replace("Bearer ", "");
+        try {
+            tokens.refresh(token);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Decompresses the body of a gzip encoded response as it's read, so that it's parsed without ever being
+     * held whole, compressed or not.
+     */
+    private static InputStream decode(final HttpResponse<InputStream> response, final InputStream body) {
+        if (!response.headers().firstValue("Content-Encoding").orElse("").equalsIgnoreCase("gzip")) {
+            return body;
+        }
+        try {
+            return new GZIPInputStream(body, 1 << 13);
+        } catch (IOException e) {
+            closeQuietly(body);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static <T> Page<T> parse(final Parser<T> parser, final InputStream body) {
+        try {
+            return parser.parse(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void closeQuietly(final InputStream body) {
+        try {
+            body.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Receives the outcome of fetching the page of an endpoint.
+     * @param <T> - the entity type of the page.
+     */
+    @FunctionalInterface
+    public interface Completion<T> {
+        /**
+         * @param endpoint - the endpoint the page was fetched from.
+         * @param page - the fetched page, or null if it could not be fetched.
+         * @param failure - the reason the page could not be fetched, or null if it was fetched.
+         */
+        void complete(String endpoint, Page<T> page, Throwable failure);
+    }
+
+    /**
+     * Parses a response body into a {@link advisor.entities.Page}.
+     * @param <T> - the entity type of the page.
+     */
+    @FunctionalInterface
+    public interface Parser<T> {
+        Page<T> parse(InputStream body) throws IOException;
+    }
+}
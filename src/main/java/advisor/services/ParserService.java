@@ -1,88 +1,364 @@
 package advisor.services;
 
 import advisor.entities.Album;
+import advisor.entities.AlbumTable;
 import advisor.entities.Category;
+import advisor.entities.Page;
 import advisor.entities.Playlist;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import advisor.entities.PlaylistTable;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
+ * Parses Spotify's JSON payloads into entities. Parsing is done in a single pass with a
+ * {@link com.google.gson.stream.JsonReader}, so payloads can be consumed straight from
+ * the response body without being materialized as a {@link java.lang.String} or a JSON tree.
+ * Albums and playlists are read straight into the columnar {@link advisor.entities.AlbumTable} and
+ * {@link advisor.entities.PlaylistTable} they're kept in.
+ * Parsed entities are added to a {@link advisor.services.SearchIndex} when one is given.
+ *
  * @author Alex Giazitzis
  */
 public class ParserService {
+    private static final Items<Playlist, PlaylistTable.Builder> PLAYLISTS  =
+            new Items<>(PlaylistTable.Builder::new, ParserService::readPlaylist, PlaylistTable.Builder::build);
+    private static final Items<Category, List<Category>>        CATEGORIES =
+            new Items<>(ArrayList::new, ParserService::readCategory, rows -> rows);
+    private static final Items<Album, AlbumTable.Builder>       ALBUMS     =
+            new Items<>(AlbumTable.Builder::new, ParserService::readAlbum, AlbumTable.Builder::build);
+
+    private final SearchIndex index;
+
+    public ParserService() {
+        this(null);
+    }
+
+    /**
+     * @param index - the {@link advisor.services.SearchIndex} every parsed entity is added to, or null.
+     */
+    public ParserService(final SearchIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Reads a JSON payload from an {@link java.io.InputStream} and returns a {@link advisor.entities.Page} of
+     * {@link advisor.entities.Playlist}. The stream is closed once parsed.
+     * @param  json - {@link java.io.InputStream} of a JSON payload.
+     * @return {@link advisor.entities.Page} of {@link advisor.entities.Playlist}, or an error page.
+     * @throws IOException if the stream could not be read or the payload is malformed.
+     */
+    public Page<Playlist> getPlaylists(final InputStream json) throws IOException {
+        return index(parsePage(toReader(json), "playlists", PLAYLISTS));
+    }
+
+    /**
+     * Reads a JSON payload from an {@link java.io.InputStream} and returns a {@link advisor.entities.Page} of
+     * {@link advisor.entities.Category}. The stream is closed once parsed.
+     * @param  json - {@link java.io.InputStream} of a JSON payload.
+     * @return {@link advisor.entities.Page} of {@link advisor.entities.Category}, or an error page.
+     * @throws IOException if the stream could not be read or the payload is malformed.
+     */
+    public Page<Category> getCategories(final InputStream json) throws IOException {
+        return index(parsePage(toReader(json), "categories", CATEGORIES));
+    }
+
+    /**
+     * Reads a JSON payload from an {@link java.io.InputStream} and returns a {@link advisor.entities.Page} of
+     * {@link advisor.entities.Album}. The stream is closed once parsed.
+     * @param  json - {@link java.io.InputStream} of a JSON payload.
+     * @return {@link advisor.entities.Page} of {@link advisor.entities.Album}, or an error page.
+     * @throws IOException if the stream could not be read or the payload is malformed.
+     */
+    public Page<Album> getAlbums(final InputStream json) throws IOException {
+        return index(parsePage(toReader(json), "albums", ALBUMS));
+    }
+
     /**
-     * Takes a JSON as {@link java.lang.String} argument and returns a {@link java.util.List} of {@link advisor.entities.Playlist}
-     * by parsing the argument with {@link com.google.gson.JsonParser}.
+     * Takes a JSON as {@link java.lang.String} argument and returns a {@link java.util.List} of {@link advisor.entities.Playlist}.
      * @param  json - {@link java.lang.String} form of a JSON payload.
      * @return {@link java.util.List} of {@link advisor.entities.Playlist}.
      */
     public List<Playlist> getPlaylists(final String json) {
-        JsonObject     body      = JsonParser.parseString(json).getAsJsonObject();
-        JsonObject     playlists = body.getAsJsonObject("playlists");
-        JsonArray      items     = playlists.getAsJsonArray("items");
-        List<Playlist> list      = new ArrayList<>();
-        for (JsonElement i : items) {
-            list.add(new Playlist(i.getAsJsonObject().get("name").getAsString(),
-                                  i.getAsJsonObject().get("external_urls").getAsJsonObject().get("spotify")
-                                   .getAsString()));
-        }
-        return list;
+        return parseString(json, "playlists", PLAYLISTS).getItems();
     }
 
     /**
-     * Takes a JSON as {@link java.lang.String} argument and returns a {@link java.util.List} of {@link advisor.entities.Category}
-     * by parsing the argument with {@link com.google.gson.JsonParser}.
+     * Takes a JSON as {@link java.lang.String} argument and returns a {@link java.util.List} of {@link advisor.entities.Category}.
      * @param  json - {@link java.lang.String} form of a JSON payload.
      * @return {@link java.util.List} of {@link advisor.entities.Category}.
      */
     public List<Category> getCategories(final String json) {
-        JsonObject     body       = JsonParser.parseString(json).getAsJsonObject();
-        JsonObject     categories = body.getAsJsonObject("categories");
-        JsonArray      items      = categories.getAsJsonArray("items");
-        List<Category> list       = new ArrayList<>();
-        for (JsonElement c : items) {
-            list.add(new Category(c.getAsJsonObject().get("name").getAsString(),
-                                  c.getAsJsonObject().get("id").getAsString()));
-        }
-        return list;
+        return parseString(json, "categories", CATEGORIES).getItems();
     }
 
     /**
-     * Takes a JSON as {@link java.lang.String} argument and returns a {@link java.util.List} of {@link advisor.entities.Album}
-     * by parsing the argument with {@link com.google.gson.JsonParser}.
+     * Takes a JSON as {@link java.lang.String} argument and returns a {@link java.util.List} of {@link advisor.entities.Album}.
      * @param  json - {@link java.lang.String} form of a JSON payload.
      * @return {@link java.util.List} of {@link advisor.entities.Album}.
      */
     public List<Album> getAlbums(final String json) {
-        JsonObject  body   = JsonParser.parseString(json).getAsJsonObject();
-        JsonObject  albums = body.getAsJsonObject("albums");
-        JsonArray   items  = albums.getAsJsonArray("items");
-        List<Album> list   = new ArrayList<>();
-        for (JsonElement i : items) {
-            String       name    = i.getAsJsonObject().get("name").getAsString();
-            List<String> artists = new ArrayList<>();
-            for (JsonElement artist : i.getAsJsonObject().get("artists").getAsJsonArray()) {
-                artists.add(artist.getAsJsonObject().get("name").getAsString());
-            }
-            String uri = i.getAsJsonObject().get("external_urls").getAsJsonObject().get("spotify").getAsString();
-            list.add(new Album(name, artists, uri));
-        }
-        return list;
+        return parseString(json, "albums", ALBUMS).getItems();
     }
 
     /**
      * Scans a JSON as {@link java.lang.String} payload for error field.
      * @param  json - {@link java.lang.String} for of a JSON payload.
-     * @return error message of error field.
+     * @return error message of error field, or null if there is none.
      */
     public String getErrorMessage(final String json) {
-        JsonObject body = JsonParser.parseString(json).getAsJsonObject();
-        JsonObject error = body.getAsJsonObject("error");
-        return error.get("message").getAsString();
+        return parseString(json, null, null).getError();
+    }
+
+    private <T> Page<T> index(final Page<T> page) {
+        if (index != null && !page.hasError()) {
+            index.addAll(page.getItems());
+        }
+        return page;
+    }
+
+    private <T> Page<T> parseString(final String json, final String root, final Items<T, ?> items) {
+        try {
+            return parsePage(new StringReader(json), root, items);
+        } catch (IOException e) {
+            throw new JsonParseException(e);
+        }
+    }
+
+    /**
+     * Walks the top level object of the payload once, returning early with an error page if an
+     * {@code error} object of the REST API is met, or reading the paging object under the given root field
+     * otherwise. The errors of the OAuth API are a plain code with an {@code error_description} field next to it,
+     * in any order, so the description, which is preferred over the code, is looked for until the object ends.
+     * Every other field is skipped without being parsed.
+     */
+    private <T> Page<T> parsePage(final Reader json, final String root, final Items<T, ?> items)
+            throws IOException {
+        try (JsonReader reader = new JsonReader(json)) {
+            Page<T> page        = new Page<>(List.of(), 0, 0, 0);
+            String  code        = null;
+            String  description = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("error".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    return Page.error(readError(reader));
+                } else if ("error".equals(name)) {
+                    code = readString(reader);
+                } else if ("error_description".equals(name)) {
+                    description = readString(reader);
+                } else if (name.equals(root)) {
+                    page = readPaging(reader, items);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            if (code != null) {
+                return Page.error(description != null ? description : code);
+            }
+            return page;
+        }
+    }
+
+    private static <T, R> Page<T> readPaging(final JsonReader reader, final Items<T, R> items) throws IOException {
+        R   rows   = items.rows.get();
+        int offset = 0;
+        int limit  = 0;
+        int total  = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "items":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        if (reader.peek() == JsonToken.NULL) {
+                            reader.nextNull();
+                            continue;
+                        }
+                        items.reader.read(reader, rows);
+                    }
+                    reader.endArray();
+                    break;
+                case "offset":
+                    offset = readInt(reader);
+                    break;
+                case "limit":
+                    limit = readInt(reader);
+                    break;
+                case "total":
+                    total = readInt(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new Page<>(items.build.apply(rows), offset, limit, total);
+    }
+
+    private static void readPlaylist(final JsonReader reader, final PlaylistTable.Builder rows) throws IOException {
+        String name       = null;
+        String url        = null;
+        String id         = null;
+        String snapshotId = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name":
+                    name = readString(reader);
+                    break;
+                case "external_urls":
+                    url = readSpotifyUrl(reader);
+                    break;
+                case "id":
+                    id = readString(reader);
+                    break;
+                case "snapshot_id":
+                    snapshotId = readString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        rows.add(name, url, id, snapshotId);
+    }
+
+    private static void readCategory(final JsonReader reader, final List<Category> rows) throws IOException {
+        String name = null;
+        String id   = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name":
+                    name = readString(reader);
+                    break;
+                case "id":
+                    id = readString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        rows.add(new Category(name, id));
+    }
+
+    private static void readAlbum(final JsonReader reader, final AlbumTable.Builder rows) throws IOException {
+        String       name    = null;
+        List<String> artists = new ArrayList<>();
+        String       uri     = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name":
+                    name = readString(reader);
+                    break;
+                case "artists":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            if ("name".equals(reader.nextName())) {
+                                artists.add(readString(reader));
+                            } else {
+                                reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                    }
+                    reader.endArray();
+                    break;
+                case "external_urls":
+                    uri = readSpotifyUrl(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        rows.add(name, artists, uri);
+    }
+
+    private static String readSpotifyUrl(final JsonReader reader) throws IOException {
+        String url = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("spotify".equals(reader.nextName())) {
+                url = readString(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return url;
+    }
+
+    /**
+     * Reads the error object of the REST API, which carries a message.
+     */
+    private String readError(final JsonReader reader) throws IOException {
+        String message = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("message".equals(reader.nextName())) {
+                message = readString(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return message == null ? "Unknown error." : message;
+    }
+
+    private static String readString(final JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    private static int readInt(final JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return 0;
+        }
+        return reader.nextInt();
+    }
+
+    private static Reader toReader(final InputStream json) {
+        return new InputStreamReader(json, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * How the items of a page are read: into which rows, and how the rows become the items of the page.
+     */
+    private static class Items<T, R> {
+        private final Supplier<R>          rows;
+        private final ItemReader<R>        reader;
+        private final Function<R, List<T>> build;
+
+        private Items(final Supplier<R> rows, final ItemReader<R> reader, final Function<R, List<T>> build) {
+            this.rows = rows;
+            this.reader = reader;
+            this.build = build;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ItemReader<R> {
+        void read(JsonReader reader, R rows) throws IOException;
     }
 }
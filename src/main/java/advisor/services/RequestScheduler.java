@@ -0,0 +1,180 @@
+package advisor.services;
+
+import advisor.utils.Metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Sends the requests of the application through a {@link java.net.http.HttpClient}, trading latency for
+ * failures under load. Requests are started at a sustained rate with a token bucket, and requests answered with
+ * {@code 429 Too Many Requests} are sent again once their {@code Retry-After} passed, holding every other request
+ * back meanwhile. Requests answered with a server error or that failed with an I/O error are sent again after an
+ * exponential backoff with full jitter. Identical requests in flight at the same time can share one response.
+ *
+ * @author Alex Giazitzis
+ */
+public class RequestScheduler {
+    private static final Duration BASE_BACKOFF = Duration.ofMillis(200);
+    private static final Duration MAX_BACKOFF  = Duration.ofSeconds(10);
+
+    private final HttpClient                        client;
+    private final double                            rate;
+    private final double                            burst;
+    private final int                               maxRetries;
+    private final Map<String, CompletableFuture<?>> inFlight    = new ConcurrentHashMap<>();
+    private       double                            tokens;
+    private       long                              refilled    = System.nanoTime();
+    private       long                              pausedUntil = refilled;
+
+    /**
+     * @param client - the {@link java.net.http.HttpClient} the requests are sent with.
+     * @param rate - the sustained amount of requests started per second.
+     * @param burst - the amount of requests that can be started at once after a quiet period.
+     * @param maxRetries - how many times a failed request is sent again before its failure is handed over.
+     */
+    public RequestScheduler(final HttpClient client, final double rate, final int burst, final int maxRetries) {
+        this.client = client;
+        this.rate = rate;
+        this.burst = Math.max(1, burst);
+        this.maxRetries = maxRetries;
+        this.tokens = this.burst;
+    }
+
+    /**
+     * Sends a request once the rate limit allows it, sending it again while it's rate limited or fails
+     * with a server or I/O error, up to the maximum amount of retries.
+     * @param  request - the request to send.
+     * @param  handler - the handler of the response body.
+     * @param  <T> - the type of the response body.
+     * @return a {@link java.util.concurrent.CompletableFuture} of the last response, whatever its status,
+     *         or failed with the last I/O error.
+     */
+    public <T> CompletableFuture<HttpResponse<T>> send(final HttpRequest request,
+                                                       final HttpResponse.BodyHandler<T> handler) {
+        return send(request, handler, 0);
+    }
+
+    /**
+     * Shares the outcome of an operation between everyone asking for the same key while it's in flight,
+     * starting it only if no operation with the key is in flight already.
+     * @param  key - identifies the operation, e.g. the URI of the request it sends.
+     * @param  operation - starts the operation.
+     * @param  <V> - the outcome type of the operation.
+     * @return a {@link java.util.concurrent.CompletableFuture} of the outcome, shared by all callers of the key.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> CompletableFuture<V> singleFlight(final String key, final Supplier<CompletableFuture<V>> operation) {
+        CompletableFuture<V> shared = (CompletableFuture<V>) inFlight.computeIfAbsent(key, k -> operation.get());
+        shared.whenComplete((result, e) -> inFlight.remove(key, shared));
+        return shared;
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> send(final HttpRequest request,
+                                                        final HttpResponse.BodyHandler<T> handler,
+                                                        final int attempt) {
+        return after(reserve()).thenCompose(unused -> client.sendAsync(request, handler)).handle((response, e) -> {
+            String endpoint = Metrics.endpoint(request.uri().getPath().replaceFirst("^/v1/browse/", ""));
+            if (attempt >= maxRetries) {
+                return response != null ? CompletableFuture.completedFuture(response)
+                                        : CompletableFuture.<HttpResponse<T>>failedFuture(e);
+            }
+            long delay;
+            if (e != null) {
+                if (!(unwrap(e) instanceof IOException)) {
+                    return CompletableFuture.<HttpResponse<T>>failedFuture(e);
+                }
+                delay = backoff(attempt);
+            } else if (response.statusCode() == 429) {
+                delay = retryAfter(response).map(Duration::toNanos).orElse(backoff(attempt));
+                pause(delay);
+            } else if (response.statusCode() >= 500) {
+                delay = backoff(attempt);
+            } else {
+                return CompletableFuture.completedFuture(response);
+            }
+            if (response != null && response.body() instanceof Closeable) {
+                try {
+                    ((Closeable) response.body()).close();
+                } catch (IOException ignored) {
+                }
+            }
+            Metrics.count(Metrics.Metric.RETRIES, endpoint);
+            return after(delay).thenCompose(unused -> send(request, handler, attempt + 1));
+        }).thenCompose(response -> response);
+    }
+
+    /**
+     * Takes a token from the bucket, letting it go negative so that requests waiting for a token are queued
+     * in the order they asked for one.
+     * @return how long to wait before starting the request, in nanoseconds.
+     */
+    private synchronized long reserve() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - refilled) * rate / 1e9);
+        refilled = now;
+        tokens--;
+        long wait = tokens >= 0 ? 0 : (long) (-tokens / rate * 1e9);
+        return Math.max(wait, pausedUntil - now);
+    }
+
+    /**
+     * Holds every request back for the given time, as the server asked with a {@code Retry-After}.
+     */
+    private synchronized void pause(final long delay) {
+        pausedUntil = Math.max(pausedUntil, System.nanoTime() + delay);
+    }
+
+    /**
+     * Full jitter backoff: a random delay up to the base backoff doubled for every attempt, capped.
+     */
+    private static long backoff(final int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF.toNanos(), BASE_BACKOFF.toNanos() << Math.min(attempt, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * Reads the {@code Retry-After} header, given either in seconds or as an HTTP date.
+     */
+    private static Optional<Duration> retryAfter(final HttpResponse<?> response) {
+        return response.headers().firstValue("Retry-After").map(value -> {
+            try {
+                return Duration.ofSeconds(Long.parseLong(value.trim()));
+            } catch (NumberFormatException e) {
+                try {
+                    return Duration.between(ZonedDateTime.now(),
+                                            ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+                } catch (DateTimeParseException ignored) {
+                    return null;
+                }
+            }
+        }).filter(delay -> !delay.isNegative());
+    }
+
+    private static CompletableFuture<Void> after(final long delay) {
+        if (delay <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> {
+        }, CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS));
+    }
+
+    private static Throwable unwrap(final Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+}
@@ -0,0 +1,172 @@
+package advisor.services;
+
+import advisor.entities.Page;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache of parsed responses, keyed by request URI and bounded by the
+ * size of the response bodies it holds. Entries expire after a time to live that depends
+ * on the endpoint they were fetched from, after which they are revalidated with their ETag.
+ * Stale entries can still be served for {@link #STALE_WHILE_REVALIDATE} while they are revalidated in the background.
+ *
+ * @author Alex Giazitzis
+ */
+public class ResponseCache {
+    /**
+     * How long past its expiration an entry can be served while it's being revalidated.
+     */
+    public static final Duration STALE_WHILE_REVALIDATE = Duration.ofDays(1);
+
+    private final long               maxBytes;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private       long               bytes   = 0;
+
+    /**
+     * @param maxBytes - the maximum total size of the cached response bodies, in bytes.
+     */
+    public ResponseCache(final long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the time to live of the responses of an endpoint of Spotify's browse API.
+     * Categories and new releases rarely change, while featured playlists are curated during the day.
+     * @param  endpoint - the endpoint of Spotify's browse API.
+     * @return the time a response of the endpoint is considered fresh for.
+     */
+    public static Duration ttl(final String endpoint) {
+        if (endpoint.startsWith("featured-playlists")) {
+            return Duration.ofMinutes(10);
+        } else if (endpoint.startsWith("new-releases")) {
+            return Duration.ofHours(1);
+        } else if (endpoint.matches("categories/[^/]+/playlists.*")) {
+            return Duration.ofMinutes(30);
+        } else if (endpoint.startsWith("categories")) {
+            return Duration.ofHours(24);
+        }
+        return Duration.ofMinutes(5);
+    }
+
+    /**
+     * @param  uri - the request URI the response was fetched from.
+     * @return the cached entry, fresh or not, or null if there is none.
+     */
+    public synchronized Entry get(final String uri) {
+        return entries.get(uri);
+    }
+
+    /**
+     * Caches an entry, evicting the least recently used ones until the cache fits in its size bound.
+     * Entries larger than the bound itself are not cached.
+     * @param uri - the request URI the response was fetched from.
+     * @param entry - the entry to cache.
+     */
+    public synchronized void put(final String uri, final Entry entry) {
+        Entry old = entries.remove(uri);
+        if (old != null) {
+            bytes -= old.size;
+        }
+        if (entry.size > maxBytes) {
+            return;
+        }
+        entries.put(uri, entry);
+        bytes += entry.size;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().size;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * @return a copy of the cached entries by request URI, ordered from the least to the most recently used.
+     */
+    public synchronized Map<String, Entry> entries() {
+        return new LinkedHashMap<>(entries);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * A parsed response along with the validator and the expiration time of the response.
+     */
+    public static class Entry {
+        private final Page<?>  page;
+        private final String   etag;
+        private final long     size;
+        private final Duration ttl;
+        private final Instant  expires;
+
+        /**
+         * @param page - the parsed response body.
+         * @param etag - the ETag header of the response, or null if there was none.
+         * @param size - the size of the response body in bytes.
+         * @param ttl - the time the response is considered fresh for.
+         */
+        public Entry(final Page<?> page, final String etag, final long size, final Duration ttl) {
+            this(page, etag, size, ttl, Instant.now().plus(ttl));
+        }
+
+        /**
+         * @param page - the parsed response body.
+         * @param etag - the ETag header of the response, or null if there was none.
+         * @param size - the size of the response body in bytes.
+         * @param ttl - the time the response is considered fresh for.
+         * @param expires - the time the response stops being fresh.
+         */
+        public Entry(final Page<?> page, final String etag, final long size, final Duration ttl,
+                     final Instant expires) {
+            this.page = page;
+            this.etag = etag;
+            this.size = size;
+            this.ttl = ttl;
+            this.expires = expires;
+        }
+
+        public Page<?> getPage() {
+            return page;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public Instant getExpires() {
+            return expires;
+        }
+
+        public boolean isFresh() {
+            return Instant.now().isBefore(expires);
+        }
+
+        /**
+         * @return true if the entry is stale but can still be served while it's being revalidated.
+         */
+        public boolean isServableStale() {
+            return Instant.now().isBefore(expires.plus(STALE_WHILE_REVALIDATE));
+        }
+
+        /**
+         * @return a copy of the entry that is fresh again, for when the server confirmed it's unchanged.
+         */
+        public Entry revalidated() {
+            return new Entry(page, etag, size, ttl);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package advisor.services;
+
+import advisor.entities.Album;
+import advisor.entities.Category;
+import advisor.entities.Playlist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over the names of every {@link advisor.entities.Album}, its artists,
+ * every {@link advisor.entities.Playlist} and every {@link advisor.entities.Category} the application parsed,
+ * so that they can be searched without requests to the API. Entities are added as they're parsed, with an entity
+ * parsed again replacing its previous version. Names are split into tokens normalized as category names are,
+ * and every token maps to the sorted IDs of the entities holding it, kept in a sorted map so that all tokens
+ * starting with a prefix are found together.
+ *
+ * @author Alex Giazitzis
+ */
+public class SearchIndex {
+    private final List<Object>              entities = new ArrayList<>();
+    private final Map<String, Integer>      ids      = new HashMap<>();
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+    private final ReadWriteLock             lock     = new ReentrantReadWriteLock();
+
+    /**
+     * Adds entities to the index, replacing the ones that were added before.
+     * @param items - the {@link advisor.entities.Album}, {@link advisor.entities.Playlist}
+     *              and {@link advisor.entities.Category} to add, with any other item being ignored.
+     */
+    public void addAll(final Collection<?> items) {
+        lock.writeLock().lock();
+        try {
+            for (Object item : items) {
+                add(item);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the entities whose names hold every term of the query, with terms split into tokens as names are.
+     * A term ending with {@code *} matches every token starting with its last token, while any other term
+     * matches whole tokens only.
+     * @param  query - the terms to search for, separated by whitespace.
+     * @param  max - the maximum amount of entities to return.
+     * @return the matching entities, in the order they were first added.
+     */
+    public List<Object> search(final String query, final int max) {
+        List<Object> found = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            BitSet matches = null;
+            for (String term : CategoryIndex.normalize(query).split(" ")) {
+                List<String> tokens = new ArrayList<>();
+                tokenize(term, tokens);
+                for (int i = 0; i < tokens.size(); i++) {
+                    String token       = tokens.get(i);
+                    BitSet termMatches = new BitSet(entities.size());
+                    if (i == tokens.size() - 1 && term.endsWith("*")) {
+                        postings.subMap(token, true, token + Character.MAX_VALUE, false)
+                                .values()
+                                .forEach(p -> p.addTo(termMatches));
+                    } else if (postings.containsKey(token)) {
+                        postings.get(token).addTo(termMatches);
+                    }
+                    if (matches == null) {
+                        matches = termMatches;
+                    } else {
+                        matches.and(termMatches);
+                    }
+                }
+            }
+            if (matches == null) {
+                return found;
+            }
+            for (int id = matches.nextSetBit(0); id >= 0 && found.size() < max; id = matches.nextSetBit(id + 1)) {
+                found.add(entities.get(id));
+            }
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ids.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(final Object item) {
+        String key = key(item);
+        if (key == null) {
+            return;
+        }
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = entities.size();
+            ids.put(key, id);
+            entities.add(item);
+        } else {
+            Set<String> previousTokens = tokens(entities.get(id));
+            entities.set(id, item);
+            if (previousTokens.equals(tokens(item))) {
+                return;
+            }
+            for (String token : previousTokens) {
+                Postings previous = postings.get(token);
+                previous.remove(id);
+                if (previous.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        }
+        for (String token : tokens(item)) {
+            postings.computeIfAbsent(token, t -> new Postings()).add(id);
+        }
+    }
+
+    private static String key(final Object item) {
+        if (item instanceof Album) {
+            return "album:" + ((Album) item).getUri();
+        } else if (item instanceof Playlist) {
+            Playlist playlist = (Playlist) item;
+            return "playlist:" + (playlist.getId() != null ? playlist.getId() : playlist.getUrl());
+        } else if (item instanceof Category) {
+            return "category:" + ((Category) item).getId();
+        }
+        return null;
+    }
+
+    private static Set<String> tokens(final Object item) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (item instanceof Album) {
+            Album album = (Album) item;
+            tokenize(album.getName(), tokens);
+            album.getArtists().forEach(artist -> tokenize(artist, tokens));
+        } else if (item instanceof Playlist) {
+            tokenize(((Playlist) item).getName(), tokens);
+        } else if (item instanceof Category) {
+            tokenize(((Category) item).getName(), tokens);
+        }
+        return tokens;
+    }
+
+    private static void tokenize(final String name, final Collection<String> tokens) {
+        if (name == null) {
+            return;
+        }
+        for (String token : CategoryIndex.normalize(name).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+    }
+
+    /**
+     * Sorted, growable array of entity IDs. IDs are mostly added in increasing order, which only appends.
+     */
+    private static class Postings {
+        private int[] ids  = new int[2];
+        private int   size = 0;
+
+        private void add(final int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+        }
+
+        private void remove(final int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+                size--;
+            }
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private void addTo(final BitSet set) {
+            for (int i = 0; i < size; i++) {
+                set.set(ids[i]);
+            }
+        }
+    }
+}
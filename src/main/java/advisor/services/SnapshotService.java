@@ -0,0 +1,247 @@
+package advisor.services;
+
+import advisor.entities.Album;
+import advisor.entities.AlbumTable;
+import advisor.entities.Category;
+import advisor.entities.Page;
+import advisor.entities.Playlist;
+import advisor.entities.PlaylistTable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persists the parsed entries of a {@link advisor.services.ResponseCache} into a compact binary file,
+ * so that a new session starts with the catalog of the previous one instead of an empty cache.
+ * The file is loaded through a memory mapping. Entries that went stale since they were saved are
+ * served while they're revalidated, as with any other entry of the cache.
+ *
+ * <p>The file starts with a header of the magic number, the format version and the time the file was written,
+ * followed by the entries, each with its URI, ETag, size, time to live, expiration time and parsed page.
+ *
+ * @author Alex Giazitzis
+ */
+public class SnapshotService {
+    private static final int  MAGIC    = 0x4D414456;
+    private static final int  VERSION  = 2;
+    private static final byte PLAYLIST = 0;
+    private static final byte CATEGORY = 1;
+    private static final byte ALBUM    = 2;
+
+    private final Path file;
+
+    /**
+     * @param file - the path of the snapshot file.
+     */
+    public SnapshotService(final Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Writes every entry of the cache into the snapshot file, replacing the previous snapshot atomically.
+     * @param  cache - the cache to persist.
+     * @throws IOException if the snapshot could not be written.
+     */
+    public void save(final ResponseCache cache) throws IOException {
+        Map<String, ResponseCache.Entry> entries = cache.entries();
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), "snapshot", ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(Instant.now().toEpochMilli());
+            out.writeInt(entries.size());
+            for (Map.Entry<String, ResponseCache.Entry> entry : entries.entrySet()) {
+                writeEntry(out, entry.getKey(), entry.getValue());
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads the entries of the snapshot file into the cache, in the order they were last used.
+     * A missing file or one written in another format version is ignored.
+     * @param  cache - the cache to fill.
+     * @return the amount of entries loaded.
+     * @throws IOException if the snapshot could not be read or is corrupt.
+     */
+    public int load(final ResponseCache cache) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return 0;
+        }
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (buffer.remaining() < 20 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return 0;
+            }
+            buffer.getLong();
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                String              uri   = readString(buffer);
+                ResponseCache.Entry entry = readEntry(buffer);
+                if (entry.isServableStale()) {
+                    cache.put(uri, entry);
+                }
+            }
+            return count;
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt snapshot " + file, e);
+        }
+    }
+
+    private static void writeEntry(final DataOutputStream out, final String uri, final ResponseCache.Entry entry)
+            throws IOException {
+        Page<?> page = entry.getPage();
+        writeString(out, uri);
+        writeString(out, entry.getEtag());
+        out.writeLong(entry.getSize());
+        out.writeLong(entry.getTtl().toMillis());
+        out.writeLong(entry.getExpires().toEpochMilli());
+        out.writeInt(page.getOffset());
+        out.writeInt(page.getLimit());
+        out.writeInt(page.getTotal());
+        out.writeInt(page.getItems().size());
+        for (Object item : page.getItems()) {
+            if (item instanceof Playlist) {
+                Playlist playlist = (Playlist) item;
+                out.writeByte(PLAYLIST);
+                writeString(out, playlist.getName());
+                writeString(out, playlist.getUrl());
+                writeString(out, playlist.getId());
+                writeString(out, playlist.getSnapshotId());
+            } else if (item instanceof Category) {
+                Category category = (Category) item;
+                out.writeByte(CATEGORY);
+                writeString(out, category.getName());
+                writeString(out, category.getId());
+            } else {
+                Album album = (Album) item;
+                out.writeByte(ALBUM);
+                writeString(out, album.getName());
+                out.writeInt(album.getArtists().size());
+                for (String artist : album.getArtists()) {
+                    writeString(out, artist);
+                }
+                writeString(out, album.getUri());
+            }
+        }
+    }
+
+    private static ResponseCache.Entry readEntry(final ByteBuffer buffer) {
+        String       etag    = readString(buffer);
+        long         size    = buffer.getLong();
+        Duration     ttl     = Duration.ofMillis(buffer.getLong());
+        Instant      expires = Instant.ofEpochMilli(buffer.getLong());
+        int          offset  = buffer.getInt();
+        int          limit   = buffer.getInt();
+        int          total   = buffer.getInt();
+        int          count   = buffer.getInt();
+        List<?>      items   = List.of();
+        if (count > 0) {
+            byte type = buffer.get(buffer.position());
+            switch (type) {
+                case PLAYLIST:
+                    items = readPlaylists(buffer, count);
+                    break;
+                case CATEGORY:
+                    items = readCategories(buffer, count);
+                    break;
+                case ALBUM:
+                    items = readAlbums(buffer, count);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown entity type " + type);
+            }
+        }
+        return new ResponseCache.Entry(new Page<>(items, offset, limit, total), etag, size, ttl, expires);
+    }
+
+    /**
+     * Reads the entities of a page, which are all of the same type, into the storage they're kept in.
+     */
+    private static PlaylistTable readPlaylists(final ByteBuffer buffer, final int count) {
+        PlaylistTable.Builder rows = new PlaylistTable.Builder();
+        for (int i = 0; i < count; i++) {
+            expect(buffer, PLAYLIST);
+            rows.add(readString(buffer), readString(buffer), readString(buffer), readString(buffer));
+        }
+        return rows.build();
+    }
+
+    private static List<Category> readCategories(final ByteBuffer buffer, final int count) {
+        List<Category> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            expect(buffer, CATEGORY);
+            rows.add(new Category(readString(buffer), readString(buffer)));
+        }
+        return rows;
+    }
+
+    private static AlbumTable readAlbums(final ByteBuffer buffer, final int count) {
+        AlbumTable.Builder rows = new AlbumTable.Builder();
+        for (int i = 0; i < count; i++) {
+            expect(buffer, ALBUM);
+            String       name        = readString(buffer);
+            int          artistCount = buffer.getInt();
+            List<String> artists     = new ArrayList<>(artistCount);
+            for (int j = 0; j < artistCount; j++) {
+                artists.add(readString(buffer));
+            }
+            rows.add(name, artists, readString(buffer));
+        }
+        return rows.build();
+    }
+
+    private static void expect(final ByteBuffer buffer, final byte type) {
+        byte found = buffer.get();
+        if (found != type) {
+            throw new IllegalStateException("Unexpected entity type " + found + " among entities of type " + type);
+        }
+    }
+
+    /**
+     * Writes a length prefixed UTF-8 string, with a length of -1 standing for null.
+     */
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        ByteBuffer bytes = buffer.slice();
+        bytes.limit(length);
+        buffer.position(buffer.position() + length);
+        return StandardCharsets.UTF_8.decode(bytes).toString();
+    }
+}
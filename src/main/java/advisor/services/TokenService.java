@@ -0,0 +1,254 @@
+package advisor.services;
+
+import advisor.entities.Credentials;
+import advisor.utils.Events;
+import advisor.utils.Metrics;
+import advisor.utils.Utils;
+import advisor.view.CLI;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the user's {@link advisor.entities.Credentials} valid for the whole session and across sessions.
+ * Credentials are stored in a local properties file, so a new session reuses them instead of going through
+ * the OAuth process again, and the access token is refreshed in the background shortly before it expires.
+ *
+ * @author Alex Giazitzis
+ */
+public class TokenService {
+    /**
+     * How long before its expiration the access token is refreshed.
+     */
+    private static final Duration                 REFRESH_MARGIN = Duration.ofMinutes(5);
+    private static final ScheduledExecutorService scheduler      = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "token-refresher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final    HttpClient         client;
+    private final    ParserService      service = new ParserService();
+    private final    Path               file;
+    private volatile Credentials        credentials;
+    private          ScheduledFuture<?> scheduledRefresh;
+
+    /**
+     * @param client - the {@link java.net.http.HttpClient} the token requests are sent with.
+     * @param file - the path of the file the credentials are stored in, or null to keep them in memory only.
+     */
+    public TokenService(final HttpClient client, final Path file) {
+        this.client = client;
+        this.file = file;
+    }
+
+    /**
+     * Loads the credentials of a previous session, refreshing the access token if it expired meanwhile.
+     * A file that can't be made sense of is ignored as if it were missing, and credentials that could not be
+     * refreshed are dropped, so that the user is asked to provide access again.
+     * @return true if the loaded credentials are usable, false otherwise.
+     * @throws IOException if the credentials could not be read or refreshed.
+     * @throws InterruptedException if interrupted while refreshing the access token.
+     */
+    public boolean load() throws IOException, InterruptedException {
+        if (file == null || !Files.isRegularFile(file)) {
+            return false;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        }
+        String accessToken  = properties.getProperty("access_token");
+        String refreshToken = properties.getProperty("refresh_token");
+        String expiresAt    = properties.getProperty("expires_at");
+        if (accessToken == null || expiresAt == null) {
+            return false;
+        }
+        Credentials stored;
+        try {
+            stored = new Credentials(accessToken, refreshToken, Instant.ofEpochMilli(Long.parseLong(expiresAt)));
+        } catch (NumberFormatException | DateTimeException e) {
+            return false;
+        }
+        if (stored.isExpired() && refreshToken == null) {
+            return false;
+        }
+        synchronized (this) {
+            credentials = stored;
+        }
+        if (stored.isExpired()) {
+            try {
+                refresh(accessToken);
+            } catch (IOException | InterruptedException e) {
+                synchronized (this) {
+                    credentials = null;
+                }
+                throw e;
+            }
+        } else {
+            schedule(stored);
+        }
+        return true;
+    }
+
+    /**
+     * Exchanges the authorization code of the OAuth process for the user's credentials.
+     * @param  query - the query of the OAuth redirect, carrying the authorization code.
+     * @throws IOException if the request failed or was rejected.
+     * @throws InterruptedException if interrupted while waiting for the response.
+     */
+    public void authorize(final String query) throws IOException, InterruptedException {
+        update(requestCredentials(Utils.authCodeRequest.apply(query), "authorization_code"));
+    }
+
+    /**
+     * Refreshes the access token, unless it was already refreshed since the given token was handed out.
+     * Requests that failed with an expired token can call this concurrently, with only one refresh taking place.
+     * @param  expiredToken - the access token that was found expired.
+     * @throws IOException if the request failed or was rejected.
+     * @throws InterruptedException if interrupted while waiting for the response.
+     */
+    public synchronized void refresh(final String expiredToken) throws IOException, InterruptedException {
+        Credentials current = credentials;
+        if (current == null || current.getRefreshToken() == null) {
+            throw new IOException("No refresh token to refresh the access token with.");
+        }
+        if (!current.getAccessToken().equals(expiredToken)) {
+            return;
+        }
+        update(requestCredentials(Utils.refreshTokenRequest.apply(current.getRefreshToken()), "refresh_token"));
+    }
+
+    /**
+     * @return the current access token, or null if the user is not authorized.
+     */
+    public String getAccessToken() {
+        Credentials current = credentials;
+        return current == null ? null : current.getAccessToken();
+    }
+
+    public boolean isAuthorized() {
+        return credentials != null;
+    }
+
+    /**
+     * Stops refreshing the access token, for credentials that are no longer used.
+     */
+    public synchronized void close() {
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+        }
+    }
+
+    private Credentials requestCredentials(final HttpRequest request, final String grant)
+            throws IOException, InterruptedException {
+        long                 start    = System.nanoTime();
+        Events.TokenExchange exchange = new Events.TokenExchange();
+        HttpResponse<byte[]> response;
+        exchange.begin();
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            Metrics.count(Metrics.Metric.ERRORS, "api/token");
+            throw e;
+        }
+        Metrics.time(Metrics.Metric.HTTP, "api/token", start);
+        Metrics.count(Metrics.Metric.BYTES, "api/token", response.body().length);
+        exchange.grant = grant;
+        exchange.status = response.statusCode();
+        exchange.bytes = response.body().length;
+        exchange.commit();
+        String body = new String(response.body(), StandardCharsets.UTF_8);
+        if (response.statusCode() != 200) {
+            Metrics.count(Metrics.Metric.ERRORS, "api/token");
+            String message = service.getErrorMessage(body);
+            throw new IOException("Token request failed with status " + response.statusCode() +
+                                  (message == null ? "." : ": " + message));
+        }
+        return Utils.credentialsRetriever.apply(body);
+    }
+
+    /**
+     * Replaces the current credentials, keeping the refresh token if the new ones came without one,
+     * then stores them and schedules their refresh.
+     */
+    private synchronized void update(final Credentials granted) throws IOException {
+        Credentials updated = granted.getRefreshToken() != null || credentials == null
+                              ? granted
+                              : new Credentials(granted.getAccessToken(), credentials.getRefreshToken(),
+                                                granted.getExpiresAt());
+        credentials = updated;
+        schedule(updated);
+        store(updated);
+    }
+
+    private synchronized void schedule(final Credentials scheduled) {
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+        }
+        if (scheduled.getRefreshToken() == null) {
+            return;
+        }
+        long delay = Math.max(0, Duration.between(Instant.now(), scheduled.getExpiresAt())
+                                         .minus(REFRESH_MARGIN).toMillis());
+        scheduledRefresh = scheduler.schedule(() -> {
+            try {
+                refresh(scheduled.getAccessToken());
+            } catch (IOException e) {
+                CLI.update("Could not refresh the access token.");
+                CLI.flush();
+                e.printStackTrace();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes the credentials into the file atomically, readable only by the user where the file system allows it.
+     */
+    private void store(final Credentials stored) throws IOException {
+        if (file == null) {
+            return;
+        }
+        Properties properties = new Properties();
+        properties.setProperty("access_token", stored.getAccessToken());
+        if (stored.getRefreshToken() != null) {
+            properties.setProperty("refresh_token", stored.getRefreshToken());
+        }
+        properties.setProperty("expires_at", String.valueOf(stored.getExpiresAt().toEpochMilli()));
+
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = FileSystems.getDefault().supportedFileAttributeViews().contains("posix")
+                    ? Files.createTempFile(directory, "credentials", ".tmp",
+                                           PosixFilePermissions.asFileAttribute(
+                                                   PosixFilePermissions.fromString("rw-------")))
+                    : Files.createTempFile(directory, "credentials", ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp)) {
+            properties.store(writer, "Music Advisor credentials");
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,513 @@
+package advisor.utils;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+
+/**
+ * {@link java.net.http.HttpClient} that records the responses of another client into an archive file,
+ * or replays the responses of an archive without sending any request, so that a run can be reproduced
+ * against the same payloads, e.g. to profile the parsing or to benchmark a change.
+ * Responses are keyed by the method and the path and query of their request, ignoring the host, so an archive
+ * recorded against the mock server replays without it. A request recorded more than once replays its last
+ * response, while {@code 304 Not Modified} responses are not recorded, as they hold no body to replay.
+ * Archives are meant to be shared, so they never hold credentials: responses of the token endpoint are recorded
+ * with a redacted access token and no refresh token, and only if they succeeded. Replays hand the redacted token
+ * over as any other, as replayed requests are never authorized anyway.
+ *
+ * <p>The archive starts with a header of the magic number and the format version, followed by the responses, each
+ * with its key, status, headers and body as received, i.e. still compressed if it was. Closing a recording appends
+ * an index of the offset of the last response of every key, followed by the offset of the index and the magic
+ * number. Replays map the archive into memory, look responses up in the index and hand their bodies over straight
+ * from the mapping. An archive whose recording was cut short has no index, so its responses are scanned instead.
+ *
+ * @author Alex Giazitzis
+ */
+public class ArchiveHttpClient extends HttpClient implements Closeable {
+    private static final int  MAGIC    = 0x4D414841;
+    private static final int  VERSION  = 1;
+    private static final byte RESPONSE = 0;
+    private static final byte INDEX    = 1;
+
+    private static final String TOKEN_KEY = "POST /api/token";
+    private static final byte[] REDACTED  = ("{\"access_token\":\"redacted\",\"token_type\":\"Bearer\"," +
+                                             "\"expires_in\":3600}").getBytes(StandardCharsets.UTF_8);
+
+    private final HttpClient        client;
+    private final Map<String, Long> index;
+    private final DataOutputStream  out;
+    private final MappedByteBuffer  archive;
+    private       long              position;
+
+    private ArchiveHttpClient(final HttpClient client, final Map<String, Long> index, final DataOutputStream out,
+                              final MappedByteBuffer archive) {
+        this.client = client;
+        this.index = index;
+        this.out = out;
+        this.archive = archive;
+    }
+
+    /**
+     * Sends the requests through the given client, recording every response into the archive file.
+     * @param  client - the client the requests are sent with.
+     * @param  file - the path of the archive file, which is replaced.
+     * @return the recording client.
+     * @throws IOException if the archive file could not be created.
+     */
+    public static ArchiveHttpClient record(final HttpClient client, final Path file) throws IOException {
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                               StandardOpenOption.TRUNCATE_EXISTING);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel),
+                                                                             1 << 16));
+        ArchiveHttpClient recorder = new ArchiveHttpClient(client, new LinkedHashMap<>(), out, null);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        recorder.position = 8;
+        return recorder;
+    }
+
+    /**
+     * Answers the requests with the responses of the archive file, without sending any of them. Requests that
+     * were not recorded are answered with {@code 404 Not Found}.
+     * @param  client - the client whose settings are reported, which never sends a request.
+     * @param  file - the path of the archive file.
+     * @return the replaying client.
+     * @throws IOException if the archive file could not be read or is corrupt.
+     */
+    public static ArchiveHttpClient replay(final HttpClient client, final Path file) throws IOException {
+        MappedByteBuffer archive;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            archive = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (archive.remaining() < 8 || archive.getInt(0) != MAGIC || archive.getInt(4) != VERSION) {
+                throw new IOException("Not an archive of version " + VERSION + ": " + file);
+            }
+            return new ArchiveHttpClient(client, readIndex(archive), null, archive);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt archive " + file, e);
+        }
+    }
+
+    /**
+     * @return the amount of distinct requests recorded or available to replay.
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Appends the index to a recording and closes the archive file. Replays have nothing to close.
+     * @throws IOException if the archive could not be written.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (out == null || position < 0) {
+            return;
+        }
+        long start = position;
+        out.writeByte(INDEX);
+        out.writeInt(index.size());
+        for (Map.Entry<String, Long> entry : index.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+        out.writeLong(start);
+        out.writeInt(MAGIC);
+        out.close();
+        position = -1;
+    }
+
+    @Override
+    public <T> HttpResponse<T> send(final HttpRequest request, final HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        try {
+            return sendAsync(request, handler).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(final HttpRequest request,
+                                                            final HttpResponse.BodyHandler<T> handler) {
+        if (archive != null) {
+            return replay(request, handler);
+        }
+        return client.sendAsync(request, info -> new Recorder<>(handler.apply(info), key(request), info));
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(final HttpRequest request,
+                                                            final HttpResponse.BodyHandler<T> handler,
+                                                            final HttpResponse.PushPromiseHandler<T> promises) {
+        return sendAsync(request, handler);
+    }
+
+    @Override
+    public Optional<CookieHandler> cookieHandler() {
+        return client.cookieHandler();
+    }
+
+    @Override
+    public Optional<Duration> connectTimeout() {
+        return client.connectTimeout();
+    }
+
+    @Override
+    public Redirect followRedirects() {
+        return client.followRedirects();
+    }
+
+    @Override
+    public Optional<ProxySelector> proxy() {
+        return client.proxy();
+    }
+
+    @Override
+    public SSLContext sslContext() {
+        return client.sslContext();
+    }
+
+    @Override
+    public SSLParameters sslParameters() {
+        return client.sslParameters();
+    }
+
+    @Override
+    public Optional<Authenticator> authenticator() {
+        return client.authenticator();
+    }
+
+    @Override
+    public Version version() {
+        return client.version();
+    }
+
+    @Override
+    public Optional<Executor> executor() {
+        return client.executor();
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> replay(final HttpRequest request,
+                                                          final HttpResponse.BodyHandler<T> handler) {
+        Long offset = index.get(key(request));
+        if (offset == null) {
+            return respond(request, handler, 404, HttpHeaders.of(Map.of(), (name, value) -> true),
+                           ByteBuffer.allocate(0));
+        }
+        ByteBuffer record = archive.duplicate();
+        record.position(offset.intValue() + 1);
+        readString(record);
+        int                       status  = record.getInt();
+        int                       count   = record.getInt();
+        Map<String, List<String>> headers = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            headers.computeIfAbsent(readString(record), name -> new ArrayList<>()).add(readString(record));
+        }
+        int        length = record.getInt();
+        ByteBuffer body   = record.slice();
+        body.limit(length);
+        return respond(request, handler, status, HttpHeaders.of(headers, (name, value) -> true), body);
+    }
+
+    /**
+     * Hands a replayed body over to the subscriber of the handler in one buffer, once it asks for it.
+     */
+    private <T> CompletableFuture<HttpResponse<T>> respond(final HttpRequest request,
+                                                           final HttpResponse.BodyHandler<T> handler,
+                                                           final int status, final HttpHeaders headers,
+                                                           final ByteBuffer body) {
+        Version version = client.version();
+        HttpResponse.BodySubscriber<T> subscriber = handler.apply(new HttpResponse.ResponseInfo() {
+            @Override
+            public int statusCode() {
+                return status;
+            }
+
+            @Override
+            public HttpHeaders headers() {
+                return headers;
+            }
+
+            @Override
+            public Version version() {
+                return version;
+            }
+        });
+        subscriber.onSubscribe(new Flow.Subscription() {
+            private boolean done = false;
+
+            @Override
+            public synchronized void request(final long n) {
+                if (done || n <= 0) {
+                    return;
+                }
+                done = true;
+                if (body.hasRemaining()) {
+                    subscriber.onNext(List.of(body.asReadOnlyBuffer()));
+                }
+                subscriber.onComplete();
+            }
+
+            @Override
+            public synchronized void cancel() {
+                done = true;
+            }
+        });
+        return subscriber.getBody().toCompletableFuture().thenApply(value -> new Response<>(request, status, headers,
+                                                                                            version, value));
+    }
+
+    /**
+     * Appends a response to the archive, superseding any previous response to the same request.
+     */
+    private synchronized void write(final String key, final HttpResponse.ResponseInfo info, final byte[] received) {
+        if (position < 0 || info.statusCode() == 304) {
+            return;
+        }
+        boolean token = key.equals(TOKEN_KEY);
+        if (token && info.statusCode() != 200) {
+            return;
+        }
+        byte[]                          body    = token ? REDACTED : received;
+        List<Map.Entry<String, String>> headers = new ArrayList<>();
+        info.headers().map().forEach((name, values) -> {
+            if (!name.startsWith(":") && !(token && (name.equalsIgnoreCase("Content-Length") ||
+                                                     name.equalsIgnoreCase("Content-Encoding")))) {
+                values.forEach(value -> headers.add(Map.entry(name, value)));
+            }
+        });
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length + 256);
+        try (DataOutputStream record = new DataOutputStream(bytes)) {
+            record.writeByte(RESPONSE);
+            writeString(record, key);
+            record.writeInt(info.statusCode());
+            record.writeInt(headers.size());
+            for (Map.Entry<String, String> header : headers) {
+                writeString(record, header.getKey());
+                writeString(record, header.getValue());
+            }
+            record.writeInt(body.length);
+            record.write(body);
+            if (position + bytes.size() > Integer.MAX_VALUE) {
+                return;
+            }
+            bytes.writeTo(out);
+            index.put(key, position);
+            position += bytes.size();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads the index at the end of the archive, or scans its responses if it has none.
+     */
+    private static Map<String, Long> readIndex(final ByteBuffer archive) {
+        Map<String, Long> index = new HashMap<>();
+        int               end   = archive.limit();
+        if (end >= 20 && archive.getInt(end - 4) == MAGIC) {
+            ByteBuffer buffer = archive.duplicate();
+            buffer.position((int) archive.getLong(end - 12));
+            if (buffer.get() == INDEX) {
+                int count = buffer.getInt();
+                for (int i = 0; i < count; i++) {
+                    index.put(readString(buffer), buffer.getLong());
+                }
+                return index;
+            }
+        }
+        ByteBuffer buffer = archive.duplicate();
+        buffer.position(8);
+        while (buffer.remaining() > 0 && buffer.get(buffer.position()) == RESPONSE) {
+            int start = buffer.position();
+            try {
+                buffer.get();
+                String key = readString(buffer);
+                buffer.getInt();
+                int count = buffer.getInt();
+                for (int i = 0; i < 2 * count; i++) {
+                    readString(buffer);
+                }
+                int length = buffer.getInt();
+                if (length > buffer.remaining()) {
+                    break;
+                }
+                buffer.position(buffer.position() + length);
+                index.put(key, (long) start);
+            } catch (RuntimeException e) {
+                break;
+            }
+        }
+        return index;
+    }
+
+    private static String key(final HttpRequest request) {
+        URI uri = request.uri();
+        return request.method() + " " + uri.getRawPath() + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery());
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final ByteBuffer buffer) {
+        int        length = buffer.getInt();
+        ByteBuffer bytes  = buffer.slice();
+        bytes.limit(length);
+        buffer.position(buffer.position() + length);
+        return StandardCharsets.UTF_8.decode(bytes).toString();
+    }
+
+    /**
+     * Copies the body of a response while handing it over to the subscriber of the request, appending the response
+     * to the archive once the body is complete.
+     */
+    private class Recorder<T> implements HttpResponse.BodySubscriber<T> {
+        private final HttpResponse.BodySubscriber<T> subscriber;
+        private final String                         key;
+        private final HttpResponse.ResponseInfo      info;
+        private final ByteArrayOutputStream          body = new ByteArrayOutputStream();
+
+        private Recorder(final HttpResponse.BodySubscriber<T> subscriber, final String key,
+                         final HttpResponse.ResponseInfo info) {
+            this.subscriber = subscriber;
+            this.key = key;
+            this.info = info;
+        }
+
+        @Override
+        public CompletionStage<T> getBody() {
+            return subscriber.getBody();
+        }
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            subscriber.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(final List<ByteBuffer> buffers) {
+            for (ByteBuffer buffer : buffers) {
+                ByteBuffer copy  = buffer.duplicate();
+                byte[]     bytes = new byte[copy.remaining()];
+                copy.get(bytes);
+                body.write(bytes, 0, bytes.length);
+            }
+            subscriber.onNext(buffers);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            subscriber.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            write(key, info, body.toByteArray());
+            subscriber.onComplete();
+        }
+    }
+
+    /**
+     * A replayed response.
+     */
+    private static class Response<T> implements HttpResponse<T> {
+        private final HttpRequest request;
+        private final int         status;
+        private final HttpHeaders headers;
+        private final Version     version;
+        private final T           body;
+
+        private Response(final HttpRequest request, final int status, final HttpHeaders headers,
+                         final Version version, final T body) {
+            this.request = request;
+            this.status = status;
+            this.headers = headers;
+            this.version = version;
+            this.body = body;
+        }
+
+        @Override
+        public int statusCode() {
+            return status;
+        }
+
+        @Override
+        public HttpRequest request() {
+            return request;
+        }
+
+        @Override
+        public Optional<HttpResponse<T>> previousResponse() {
+            return Optional.empty();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return headers;
+        }
+
+        @Override
+        public T body() {
+            return body;
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return Optional.empty();
+        }
+
+        @Override
+        public URI uri() {
+            return request.uri();
+        }
+
+        @Override
+        public Version version() {
+            return version;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package advisor.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+/**
+ * Java Flight Recorder events of the application: HTTP and token exchanges, parsing, cache lookups, page rendering
+ * and commands, so that a recording links the GC, allocation and CPU samples of the JVM to the command and the
+ * request that caused them. Events cost next to nothing while no recording is running, so they're always emitted,
+ * while a recording is only started when the {@code -jfr} argument is given. Recordings started otherwise, e.g.
+ * with {@code -XX:StartFlightRecording}, hold the events as well.
+ *
+ * @author Alex Giazitzis
+ */
+public class Events {
+    private static final String CATEGORY = "Music Advisor";
+
+    private Events() {
+    }
+
+    /**
+     * Starts a recording with the {@code profile} settings of the JDK, which is written into the given file
+     * once the application exits.
+     * @param  file - the path of the recording file.
+     * @throws IOException if the recording could not be started.
+     */
+    public static void record(final Path file) throws IOException {
+        Recording recording;
+        try {
+            recording = new Recording(Configuration.getConfiguration("profile"));
+        } catch (ParseException e) {
+            throw new IOException("Could not read the profile settings of the JDK.", e);
+        }
+        recording.setName("Music Advisor");
+        recording.setToDisk(true);
+        recording.setDestination(file);
+        recording.setDumpOnExit(true);
+        recording.start();
+    }
+
+    /**
+     * Emits a {@link advisor.utils.Events.CacheLookup}.
+     * @param endpoint - the label of the endpoint.
+     * @param result - either {@code fresh}, {@code stale}, {@code catalog} or {@code miss}.
+     */
+    public static void cacheLookup(final String endpoint, final String result) {
+        CacheLookup event = new CacheLookup();
+        if (event.shouldCommit()) {
+            event.endpoint = endpoint;
+            event.result = result;
+            event.commit();
+        }
+    }
+
+    @Name("advisor.HttpExchange")
+    @Label("HTTP Exchange")
+    @Description("A request for a page of Spotify's REST API, until its response arrived")
+    @Category({CATEGORY, "HTTP"})
+    public static class HttpExchange extends Event {
+        @Label("Endpoint")
+        public String endpoint;
+
+        @Label("URI")
+        public String uri;
+
+        @Label("Status")
+        public int status;
+
+        @Label("Bytes")
+        @Description("Bytes of the response body as received, before decompressing it")
+        @DataAmount
+        public long bytes;
+    }
+
+    @Name("advisor.TokenExchange")
+    @Label("Token Exchange")
+    @Description("A request for an access token, either with an authorization code or a refresh token")
+    @Category({CATEGORY, "HTTP"})
+    public static class TokenExchange extends Event {
+        @Label("Grant Type")
+        public String grant;
+
+        @Label("Status")
+        public int status;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+    }
+
+    @Name("advisor.Parse")
+    @Label("JSON Parse")
+    @Description("The decompression and parsing of a response body into a page")
+    @Category({CATEGORY, "Parsing"})
+    public static class Parse extends Event {
+        @Label("Endpoint")
+        public String endpoint;
+
+        @Label("Entity Type")
+        public String entityType;
+
+        @Label("Items")
+        public int items;
+
+        @Label("Bytes")
+        @Description("Bytes of JSON parsed")
+        @DataAmount
+        public long bytes;
+    }
+
+    @Name("advisor.CacheLookup")
+    @Label("Cache Lookup")
+    @Description("A look up of a page, answered by the cache, the catalog or a request")
+    @Category({CATEGORY, "Cache"})
+    public static class CacheLookup extends Event {
+        @Label("Endpoint")
+        public String endpoint;
+
+        @Label("Result")
+        @Description("fresh, stale or catalog when answered without waiting for a request, miss otherwise")
+        public String result;
+    }
+
+    @Name("advisor.PageRender")
+    @Label("Page Render")
+    @Category({CATEGORY, "Rendering"})
+    public static class PageRender extends Event {
+        @Label("Endpoint")
+        public String endpoint;
+
+        @Label("Offset")
+        public int offset;
+
+        @Label("Items")
+        public int items;
+    }
+
+    @Name("advisor.Command")
+    @Label("Command")
+    @Description("A command of the user, from the time it was started until it completed or was cancelled")
+    @Category(CATEGORY)
+    public static class Command extends Event {
+        @Label("Command")
+        public String command;
+
+        @Label("Outcome")
+        public String outcome;
+    }
+}
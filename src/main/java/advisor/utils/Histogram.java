@@ -0,0 +1,88 @@
+package advisor.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram of non-negative values, such as latencies in nanoseconds.
+ * Values are counted in log-linear buckets, eight per power of two, so any value is recorded with a single
+ * atomic increment into a fixed array and quantiles are reported within 12.5% of the recorded values.
+ *
+ * @author Alex Giazitzis
+ */
+public class Histogram {
+    /**
+     * The amount of buckets per power of two, as a power of two itself.
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS     = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray((64 - SUB_BUCKET_BITS) * SUB_BUCKETS);
+    private final LongAdder       count   = new LongAdder();
+    private final LongAdder       sum     = new LongAdder();
+
+    /**
+     * @param value - the value to record, with negative values being recorded as 0.
+     */
+    public void record(final long value) {
+        long recorded = Math.max(0, value);
+        buckets.incrementAndGet(bucket(recorded));
+        count.increment();
+        sum.add(recorded);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * @param  quantile - the quantile, between 0 and 1.
+     * @return the upper bound of the bucket the quantile falls into, or 0 if nothing was recorded.
+     */
+    public long quantile(final double quantile) {
+        long total = 0;
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(counts.length - 1);
+    }
+
+    /**
+     * Values below {@code SUB_BUCKETS} get a bucket each, while larger values are bucketed by the position of
+     * their highest bit and the {@code SUB_BUCKET_BITS} bits that follow it.
+     */
+    private static int bucket(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int mantissa = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + mantissa;
+    }
+
+    private static long upperBound(final int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int mantissa = bucket % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + mantissa + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -11,13 +11,14 @@ import java.util.concurrent.CountDownLatch;
  * Custom implementation of {@link com.sun.net.httpserver.HttpHandler} that introduces
  * a {@link java.util.concurrent.CountDownLatch} field that's used to control the program flow,
  * a {@link java.lang.String} field that enables the ability to retrieve the
- * incoming GET request query parameters/
+ * incoming GET request query parameters.
+ * A new handler, with a new latch, is meant to be used for each authorization attempt.
  *
  * @author Alex Giazitzis
  */
 public class HttpHandlerWithLatch implements HttpHandler {
-    private final CountDownLatch latch;
-    public static String query;
+    private final    CountDownLatch latch;
+    private volatile String         query;
 
     public HttpHandlerWithLatch(final CountDownLatch latch) {
         this.latch = latch;
@@ -25,17 +26,26 @@ public class HttpHandlerWithLatch implements HttpHandler {
 
     @Override
     public void handle(final HttpExchange exchange) throws IOException {
-        query = exchange.getRequestURI().getQuery();
+        String query    = exchange.getRequestURI().getQuery();
         String response = "Got the code. Return back to your program.";
         if (query == null || query.contains("error=")) {
             response = "Authorization code not found. Try again.";
             query = null;
         }
-        exchange.sendResponseHeaders(200, response.length());
-        exchange.getResponseBody().write(response.getBytes(StandardCharsets.UTF_8));
+        byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
         exchange.close();
         if (query != null) {
+            this.query = query;
             latch.countDown();
         }
     }
+
+    /**
+     * @return the query of the request that carried the authorization code, or null if none arrived yet.
+     */
+    public String getQuery() {
+        return query;
+    }
 }
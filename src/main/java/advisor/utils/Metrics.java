@@ -0,0 +1,171 @@
+package advisor.utils;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the latency of HTTP exchanges, parsing and rendering, along with byte, error and cache counters,
+ * broken down by endpoint, and exposes them in the Prometheus text format.
+ * Recording only touches a {@link advisor.utils.Histogram} or a {@link java.util.concurrent.atomic.LongAdder},
+ * so it stays on at all times, while the metrics are only served when the {@code -metrics} argument is given.
+ *
+ * @author Alex Giazitzis
+ */
+public class Metrics {
+    private static final Map<Metric, Map<String, Histogram>> histograms = new EnumMap<>(Metric.class);
+    private static final Map<Metric, Map<String, LongAdder>> counters   = new EnumMap<>(Metric.class);
+    private static       HttpServer                          server;
+
+    static {
+        for (Metric metric : Metric.values()) {
+            if (metric.summary) {
+                histograms.put(metric, new ConcurrentHashMap<>());
+            } else {
+                counters.put(metric, new ConcurrentHashMap<>());
+            }
+        }
+    }
+
+    /**
+     * Turns an endpoint, with or without its query, into the label it's recorded under, replacing category IDs
+     * with {@code {id}} so that the playlists of all categories are recorded together.
+     * @param  endpoint - the endpoint, e.g. {@code categories/party/playlists?offset=0&limit=5}.
+     * @return the label, e.g. {@code categories/{id}/playlists}.
+     */
+    public static String endpoint(final String endpoint) {
+        int    query = endpoint.indexOf('?');
+        String path  = query < 0 ? endpoint : endpoint.substring(0, query);
+        if (path.startsWith("categories/") && path.endsWith("/playlists")) {
+            return "categories/{id}/playlists";
+        }
+        return path;
+    }
+
+    /**
+     * Records the time passed since the given start.
+     * @param metric - a summary metric.
+     * @param endpoint - the label of the endpoint.
+     * @param start - the start, as given by {@link System#nanoTime()}.
+     */
+    public static void time(final Metric metric, final String endpoint, final long start) {
+        histograms.get(metric).computeIfAbsent(endpoint, e -> new Histogram()).record(System.nanoTime() - start);
+    }
+
+    /**
+     * @param metric - a counter metric.
+     * @param endpoint - the label of the endpoint.
+     * @param amount - the amount to add to the counter.
+     */
+    public static void count(final Metric metric, final String endpoint, final long amount) {
+        counters.get(metric).computeIfAbsent(endpoint, e -> new LongAdder()).add(amount);
+    }
+
+    public static void count(final Metric metric, final String endpoint) {
+        count(metric, endpoint, 1);
+    }
+
+    /**
+     * @param  metric - a counter metric.
+     * @return the sum of the counter over every endpoint.
+     */
+    public static long total(final Metric metric) {
+        return counters.get(metric).values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    /**
+     * Serves the metrics at {@code /metrics} of the given local port, until {@link #stop()} is called.
+     * @param  port - the port to listen on.
+     * @throws IOException if the server could not bind on the port.
+     */
+    public static synchronized void serve(final int port) throws IOException {
+        stop();
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.setExecutor(Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "metrics");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.createContext("/metrics", exchange -> {
+            byte[] body = format().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    public static synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    /**
+     * @return every metric in the Prometheus text format, with latencies in seconds.
+     */
+    public static String format() {
+        StringWriter out = new StringWriter();
+        for (Metric metric : Metric.values()) {
+            out.write("# HELP " + metric.name + " " + metric.help + "\n");
+            out.write("# TYPE " + metric.name + " " + (metric.summary ? "summary" : "counter") + "\n");
+            if (metric.summary) {
+                new TreeMap<>(histograms.get(metric)).forEach((endpoint, histogram) -> {
+                    String label = "endpoint=\"" + endpoint + "\"";
+                    for (String quantile : new String[] {"0.5", "0.99", "0.999"}) {
+                        out.write(metric.name + "{" + label + ",quantile=\"" + quantile + "\"} " +
+                                  seconds(histogram.quantile(Double.parseDouble(quantile))) + "\n");
+                    }
+                    out.write(metric.name + "_sum{" + label + "} " + seconds(histogram.getSum()) + "\n");
+                    out.write(metric.name + "_count{" + label + "} " + histogram.getCount() + "\n");
+                });
+            } else {
+                new TreeMap<>(counters.get(metric)).forEach((endpoint, counter) ->
+                        out.write(metric.name + "{endpoint=\"" + endpoint + "\"} " + counter.sum() + "\n"));
+            }
+        }
+        return out.toString();
+    }
+
+    private static String seconds(final long nanos) {
+        return String.valueOf(nanos / 1e9);
+    }
+
+    /**
+     * The recorded metrics, either latency summaries or counters.
+     */
+    public enum Metric {
+        HTTP("advisor_http_request_seconds", true, "Time until the response headers of a request were received."),
+        PARSE("advisor_parse_seconds", true, "Time spent reading and parsing a response body."),
+        RENDER("advisor_render_seconds", true, "Time spent rendering a page to the output."),
+        BYTES("advisor_response_bytes_total", false, "Bytes of response bodies received, compressed or not."),
+        DECODED_BYTES("advisor_response_decoded_bytes_total", false, "Bytes of response bodies once decompressed."),
+        ERRORS("advisor_errors_total", false, "Requests that failed or were answered with an error status."),
+        RETRIES("advisor_retries_total", false, "Requests sent again after being rate limited or failing."),
+        CACHE_HITS("advisor_cache_hits_total", false, "Pages served from the cache without waiting for a request."),
+        CACHE_MISSES("advisor_cache_misses_total", false, "Pages that had to be requested.");
+
+        private final String  name;
+        private final boolean summary;
+        private final String  help;
+
+        Metric(final String name, final boolean summary, final String help) {
+            this.name = name;
+            this.summary = summary;
+            this.help = help;
+        }
+    }
+}
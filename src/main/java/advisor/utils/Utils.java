@@ -1,14 +1,25 @@
 package advisor.utils;
 
 import advisor.Main;
+import advisor.entities.Credentials;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
 import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
@@ -16,36 +27,65 @@ import java.util.function.Function;
  * @author Alex Giazitzis
  */
 public class Utils {
+    /**
+     * The time allowed to open a connection to the API.
+     */
+    public static final Duration                                CONNECT_TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * The time a request waits for its response before failing with a {@link java.net.http.HttpTimeoutException}.
+     */
+    public static final Duration                                REQUEST_TIMEOUT = Duration.ofSeconds(20);
+
     /**
      * Builds the required URI for the start of the OAuth process.
      */
     public static final Function<Void, String>                  urlBuilder;
 
+    /**
+     * Builds the URI for the start of the OAuth process with the given state,
+     * which the redirect carries back to tell apart the sessions of a server.
+     */
+    public static final Function<String, String>                stateUrlBuilder;
+
     /**
      * Builds the required POST {@link java.net.http.HttpRequest}
-     * in order to retrieve the access code for the user.
+     * in order to retrieve the access code for the user, from the {@code code} parameter of the redirect's query.
      */
     public static final Function<String, HttpRequest>           authCodeRequest;
 
     /**
-     * Parses the JSON payload of the response to the POST request
-     * the application makes and retrieves the access code.
+     * Builds the required POST {@link java.net.http.HttpRequest}
+     * in order to exchange the user's refresh token for a new access token.
+     */
+    public static final Function<String, HttpRequest>           refreshTokenRequest;
+
+    /**
+     * Parses the JSON payload of the response to the POST requests for tokens
+     * the application makes and retrieves the {@link advisor.entities.Credentials},
+     * whose refresh token is null if the response had none.
      */
-    public static final Function<String, String>                authCodeRetriever;
+    public static final Function<String, Credentials>           credentialsRetriever;
 
     /**
      * Builds a GET {@link java.net.http.HttpRequest} with the use of two {@link java.lang.String} params,
      * the first being the user access code and
      * the second being endpoint of Spotify's REST API.
+     * The request accepts gzip compressed responses.
      */
     public static final BiFunction<String, String, HttpRequest> getRequest;
 
     /**
-     * Builds a GET {@link java.net.http.HttpRequest} with the use of two {@link java.lang.String} params,
-     * the first being the user access code and
-     * the second being the category ID retrieved from Spotify's categories.
+     * Builds the endpoint of Spotify's REST API that lists the playlists
+     * of the category with the given ID retrieved from Spotify's categories.
      */
-    public static final BiFunction<String, String, HttpRequest> getPlaylistRequest;
+    public static final Function<String, String>                playlistsEndpoint;
+
+    /**
+     * Builds the endpoint of Spotify's REST API that lists the new releases
+     * of the market with the given ISO 3166-1 alpha-2 country code.
+     */
+    public static final Function<String, String>                newReleasesEndpoint;
 
     static {
 
@@ -57,44 +97,139 @@ public class Utils {
                    "&response_type=code&redirect_uri=http://localhost:" + keys.getString("port");
         };
 
+        stateUrlBuilder = state -> urlBuilder.apply(null) +
+                                   "&state=" + URLEncoder.encode(state, StandardCharsets.UTF_8);
+
         authCodeRequest = responseQuery -> {
-            String code = responseQuery.substring(responseQuery.indexOf("=") + 1);
+            String code = parseQuery(responseQuery).getOrDefault("code", "");
 
             ResourceBundle keys = ResourceBundle.getBundle("keys");
-            String authHeader =
-                    " Basic " + Base64.getUrlEncoder().encodeToString(
-                            (keys.getString("client_id") + ":" + keys.getString("client_secret"))
-                                    .getBytes(StandardCharsets.UTF_8));
             String payload = "grant_type=authorization_code&code=" +
-                             code +
+                             URLEncoder.encode(code, StandardCharsets.UTF_8) +
                              "&redirect_uri=http://localhost:" + keys.getString("port");
 
-            return HttpRequest.newBuilder()
-                              .headers("Authorization", authHeader,
-                                       "Content-Type", "application/x-www-form-urlencoded")
-                              .uri(URI.create(Main.accessPoint + "/api/token"))
-                              .POST(HttpRequest.BodyPublishers.ofString(payload))
-                              .build();
+            return tokenRequest(keys, payload);
         };
 
-        authCodeRetriever = responseBody -> {
+        refreshTokenRequest = refreshToken -> tokenRequest(ResourceBundle.getBundle("keys"),
+                                                           "grant_type=refresh_token&refresh_token=" +
+                                                           URLEncoder.encode(refreshToken, StandardCharsets.UTF_8));
+
+        credentialsRetriever = responseBody -> {
             JsonObject auth = JsonParser.parseString(responseBody).getAsJsonObject();
-            return auth.get("access_token").getAsString();
+            return new Credentials(auth.get("access_token").getAsString(),
+                                   auth.has("refresh_token") ? auth.get("refresh_token").getAsString() : null,
+                                   Instant.now().plusSeconds(auth.get("expires_in").getAsLong()));
         };
 
         getRequest = (authToken, endpoint) -> HttpRequest.newBuilder()
                                                          .headers("Authorization", "Bearer " + authToken,
-                                                                  "Content-Type", "application/x-www-form-urlencoded")
+                                                                  "Content-Type", "application/x-www-form-urlencoded",
+                                                                  "Accept-Encoding", "gzip")
                                                          .uri(URI.create(Main.resourcePoint + "/v1/browse/" + endpoint))
+                                                         .timeout(REQUEST_TIMEOUT)
                                                          .GET()
                                                          .build();
 
-        getPlaylistRequest = (authToken, categoryId) -> HttpRequest.newBuilder()
-                                                                   .header("Authorization", "Bearer " + authToken)
-                                                                   .uri(URI.create(Main.resourcePoint +
-                                                                                   "/v1/browse/categories/" +
-                                                                                   categoryId + "/playlists"))
-                                                                   .GET()
-                                                                   .build();
+        playlistsEndpoint = categoryId -> "categories/" + categoryId + "/playlists";
+
+        newReleasesEndpoint = market -> "new-releases?country=" + URLEncoder.encode(market, StandardCharsets.UTF_8);
+    }
+
+    private static HttpRequest tokenRequest(final ResourceBundle keys, final String payload) {
+        String authHeader =
+                " Basic " + Base64.getUrlEncoder().encodeToString(
+                        (keys.getString("client_id") + ":" + keys.getString("client_secret"))
+                                .getBytes(StandardCharsets.UTF_8));
+
+        return HttpRequest.newBuilder()
+                          .headers("Authorization", authHeader,
+                                   "Content-Type", "application/x-www-form-urlencoded")
+                          .uri(URI.create(Main.accessPoint + "/api/token"))
+                          .timeout(REQUEST_TIMEOUT)
+                          .POST(HttpRequest.BodyPublishers.ofString(payload))
+                          .build();
+    }
+
+    /**
+     * Builds the {@link java.net.http.HttpClient} the application talks to Spotify with. The client prefers
+     * HTTP/2, so that every request to a host is multiplexed over one connection, and runs its work on a
+     * dedicated pool of daemon threads instead of the common pool.
+     * @param  threads - the size of the pool of the client.
+     * @return the client.
+     */
+    public static HttpClient newHttpClient(final int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return HttpClient.newBuilder()
+                         .version(HttpClient.Version.HTTP_2)
+                         .connectTimeout(CONNECT_TIMEOUT)
+                         .executor(Executors.newFixedThreadPool(Math.max(2, threads), r -> {
+                             Thread thread = new Thread(r, "http-client-" + count.incrementAndGet());
+                             thread.setDaemon(true);
+                             return thread;
+                         }))
+                         .build();
+    }
+
+    /**
+     * Opens the connections of the client to the given hosts ahead of the first real request, so that it doesn't
+     * pay for the DNS lookup and the TLS and HTTP/2 handshakes. Sends a {@code HEAD} request to every host without
+     * waiting for it, ignoring the response and any failure, as the connection stays in the pool of the client.
+     * @param client - the client to warm up.
+     * @param hosts - the base URIs of the hosts to connect to.
+     */
+    public static void preconnect(final HttpClient client, final String... hosts) {
+        for (String host : hosts) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(host + "/"))
+                                             .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                                             .timeout(REQUEST_TIMEOUT)
+                                             .build();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                  .exceptionally(e -> null);
+        }
+    }
+
+    /**
+     * Appends the offset and limit query parameters to an endpoint of Spotify's REST API.
+     * @param  endpoint - the endpoint of Spotify's REST API, with or without a query.
+     * @param  offset - the index of the first item to return.
+     * @param  limit - the maximum amount of items to return.
+     * @return the endpoint along with its paging query.
+     */
+    public static String pagedEndpoint(final String endpoint, final int offset, final int limit) {
+        return endpoint + (endpoint.indexOf('?') < 0 ? "?" : "&") + "offset=" + offset + "&limit=" + limit;
+    }
+
+    /**
+     * Copies a GET {@link java.net.http.HttpRequest} along with its headers, adding the given headers to the copy.
+     * @param  request - the GET {@link java.net.http.HttpRequest} to copy.
+     * @param  headers - name value pairs of the headers to add.
+     * @return the copy of the request.
+     */
+    public static HttpRequest withHeaders(final HttpRequest request, final String... headers) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(request.uri()).GET();
+        request.headers().map().forEach((name, values) -> values.forEach(value -> builder.header(name, value)));
+        request.timeout().ifPresent(builder::timeout);
+        return builder.headers(headers).build();
+    }
+
+    /**
+     * Parses the parameters of a URL encoded query or form, keeping the last value of repeated names.
+     * @param  query - the raw query, or null.
+     * @return the decoded parameters by name.
+     */
+    public static Map<String, String> parseQuery(final String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                               URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
     }
 }
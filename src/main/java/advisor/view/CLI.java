@@ -1,20 +1,164 @@
 package advisor.view;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
 /**
  * Command Line Interface view that the user sees any and all output the program has.
+ * Output is gathered in a single buffer that is written out once per command with {@link #flush()},
+ * into whatever {@link java.lang.System#out} is at the time, so that redirecting it redirects the output too.
  * @author Alex Giazitzis
  */
 public class CLI {
+    private static final Writer out      = new BufferedWriter(
+            new OutputStreamWriter(new StandardOutput(), StandardCharsets.UTF_8), 1 << 16);
+    private static final char[] digits   = new char[11];
+    private static       int    progress = 0;
+
     /**
      * Outputs the given objects to the command line interface the user uses.
-     * For better usage, override the {@link java.lang.Object#toString()} method on the entity classes passed.
+     * Objects that are {@link advisor.view.Renderable} are written straight into the output,
+     * for the rest override the {@link java.lang.Object#toString()} method on the entity classes passed.
+     * The objects of a single call are never interleaved with the output of other threads.
      * @param output - array format of passed objects.
      * @param <T> - the class type used as a parameter type.
      */
     @SafeVarargs
-    public static <T> void update(final T... output) {
-        for (T t : output) {
-            System.out.println(t.toString());
+    public static synchronized <T> void update(final T... output) {
+        try {
+            clearProgress();
+            for (T t : output) {
+                if (t instanceof Renderable) {
+                    ((Renderable) t).render(out);
+                } else {
+                    out.write(t.toString());
+                }
+                out.write('\n');
+            }
+        } catch (IOException ignored) {
+            // Like System.out, output that can't be written anymore is dropped.
+        }
+    }
+
+    /**
+     * Outputs the line that closes a page, with the page number and the amount of pages.
+     * @param offset - the index of the first item of the page.
+     * @param total - the total amount of items.
+     * @param pageSize - the amount of items in a page.
+     */
+    public static synchronized void page(final int offset, final int total, final int pageSize) {
+        try {
+            clearProgress();
+            page(out, offset, total, pageSize);
+            out.write('\n');
+        } catch (IOException ignored) {
+            // Like System.out, output that can't be written anymore is dropped.
+        }
+    }
+
+    /**
+     * Writes the line that closes a page, with the page number and the amount of pages, without a line break.
+     * @param  writer - the {@link java.io.Writer} to write into.
+     * @param  offset - the index of the first item of the page.
+     * @param  total - the total amount of items.
+     * @param  pageSize - the amount of items in a page.
+     * @throws IOException if the writer failed.
+     */
+    public static void page(final Writer writer, final int offset, final int total, final int pageSize)
+            throws IOException {
+        synchronized (digits) {
+            writer.write("---PAGE ");
+            writeInt(writer, offset / pageSize + 1);
+            writer.write(" OF ");
+            writeInt(writer, Math.max(1, (total + pageSize - 1) / pageSize));
+            writer.write("---");
+        }
+    }
+
+    /**
+     * Shows a progress line below the output, replacing the previous one. The line is cleared by the next output,
+     * and should only be shown on a terminal, as it's redrawn with carriage returns.
+     * @param line - the progress line, without line breaks.
+     */
+    public static synchronized void progress(final String line) {
+        try {
+            out.write('\r');
+            out.write(line);
+            for (int i = line.length(); i < progress; i++) {
+                out.write(' ');
+            }
+            progress = line.length();
+            out.flush();
+        } catch (IOException ignored) {
+            // Like System.out, output that can't be written anymore is dropped.
+        }
+    }
+
+    /**
+     * Clears the progress line, if one is shown.
+     */
+    public static synchronized void clearProgress() {
+        if (progress == 0) {
+            return;
+        }
+        try {
+            out.write('\r');
+            for (int i = 0; i < progress; i++) {
+                out.write(' ');
+            }
+            out.write('\r');
+            progress = 0;
+        } catch (IOException ignored) {
+            // Like System.out, output that can't be written anymore is dropped.
+        }
+    }
+
+    /**
+     * Writes everything output since the last flush to the command line interface.
+     */
+    public static synchronized void flush() {
+        try {
+            out.flush();
+        } catch (IOException ignored) {
+            // Like System.out, output that can't be written anymore is dropped.
+        }
+    }
+
+    /**
+     * Writes the digits of a non negative integer through a reused buffer.
+     */
+    private static void writeInt(final Writer writer, final int value) throws IOException {
+        int remaining = value;
+        int start     = digits.length;
+        do {
+            digits[--start] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining > 0);
+        writer.write(digits, start, digits.length - start);
+    }
+
+    /**
+     * Forwards the output to the current {@link java.lang.System#out}, looked up on every write so that it follows
+     * {@link java.lang.System#setOut(java.io.PrintStream)}.
+     */
+    private static class StandardOutput extends OutputStream {
+        @Override
+        public void write(final int b) {
+            System.out.write(b);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            System.out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() {
+            System.out.flush();
         }
     }
 }
@@ -0,0 +1,80 @@
+package advisor.view;
+
+import advisor.entities.Album;
+import advisor.entities.Category;
+import advisor.entities.Playlist;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Machine readable view that writes entities as the rows of a CSV table (RFC 4180), one row per entity
+ * with the same columns for every type of entity, leaving the columns a type doesn't have empty.
+ *
+ * @author Alex Giazitzis
+ */
+public class CsvView {
+    /**
+     * The columns of every row.
+     */
+    public static final String HEADER = "type,id,name,artists,url,category";
+
+    /**
+     * Writes an entity as a row, the artists of an album being separated by semicolons.
+     * @param  out - the {@link java.io.Writer} to write into.
+     * @param  entity - the {@link advisor.entities.Album}, {@link advisor.entities.Category}
+     *                  or {@link advisor.entities.Playlist} to write.
+     * @param  category - the ID of the category the entity was listed under, or null.
+     * @throws IOException if the writer failed.
+     */
+    public static void writeRow(final Writer out, final Object entity, final String category) throws IOException {
+        if (entity instanceof Playlist) {
+            Playlist playlist = (Playlist) entity;
+            writeRow(out, "playlist", playlist.getId(), playlist.getName(), null, playlist.getUrl(), category);
+        } else if (entity instanceof Category) {
+            writeRow(out, "category", ((Category) entity).getId(), ((Category) entity).getName(), null, null,
+                     category);
+        } else if (entity instanceof Album) {
+            Album album = (Album) entity;
+            writeRow(out, "album", null, album.getName(), String.join(";", album.getArtists()), album.getUri(),
+                     category);
+        }
+    }
+
+    private static void writeRow(final Writer out, final String... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            writeValue(out, values[i]);
+        }
+        out.write("\r\n");
+    }
+
+    /**
+     * Writes a value, quoted if it holds a separator, a quote or a line break, with its quotes doubled.
+     */
+    private static void writeValue(final Writer out, final String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quoted = false;
+        for (int i = 0; i < value.length() && !quoted; i++) {
+            char c = value.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quoted) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,89 @@
+package advisor.view;
+
+import advisor.entities.Album;
+import advisor.entities.Category;
+import advisor.entities.MarketAlbum;
+import advisor.entities.Page;
+import advisor.entities.Playlist;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Machine readable view that writes entities and pages as JSON, for the output of non-interactive runs.
+ *
+ * @author Alex Giazitzis
+ */
+public class JsonView {
+    /**
+     * Writes the paging metadata and the items of a page as the fields of the JSON object being written.
+     * @param  writer - the {@link com.google.gson.stream.JsonWriter} positioned inside an object.
+     * @param  page - the page to write.
+     * @throws IOException if the writer failed.
+     */
+    public static void writePage(final JsonWriter writer, final Page<?> page) throws IOException {
+        writer.name("offset").value(page.getOffset());
+        writer.name("limit").value(page.getLimit());
+        writer.name("total").value(page.getTotal());
+        writer.name("items").beginArray();
+        for (Object item : page.getItems()) {
+            writeEntity(writer, item);
+        }
+        writer.endArray();
+    }
+
+    /**
+     * Writes an entity as a JSON object with a type field naming the entity.
+     * @param  writer - the {@link com.google.gson.stream.JsonWriter} to write into.
+     * @param  entity - the {@link advisor.entities.Album}, {@link advisor.entities.Category}
+     *                  or {@link advisor.entities.Playlist} to write.
+     * @throws IOException if the writer failed.
+     */
+    public static void writeEntity(final JsonWriter writer, final Object entity) throws IOException {
+        writer.beginObject();
+        writeFields(writer, entity);
+        writer.endObject();
+    }
+
+    /**
+     * Writes the fields of an entity, a type field naming the entity first, into the JSON object being written.
+     * @param  writer - the {@link com.google.gson.stream.JsonWriter} positioned inside an object.
+     * @param  entity - the {@link advisor.entities.Album}, {@link advisor.entities.Category},
+     *                  {@link advisor.entities.MarketAlbum} or {@link advisor.entities.Playlist} to write.
+     * @throws IOException if the writer failed.
+     */
+    public static void writeFields(final JsonWriter writer, final Object entity) throws IOException {
+        if (entity instanceof Playlist) {
+            Playlist playlist = (Playlist) entity;
+            writer.name("type").value("playlist");
+            if (playlist.getId() != null) {
+                writer.name("id").value(playlist.getId());
+            }
+            writer.name("name").value(playlist.getName());
+            writer.name("url").value(playlist.getUrl());
+        } else if (entity instanceof Category) {
+            Category category = (Category) entity;
+            writer.name("type").value("category");
+            writer.name("id").value(category.getId());
+            writer.name("name").value(category.getName());
+        } else if (entity instanceof Album) {
+            Album album = (Album) entity;
+            writer.name("type").value("album");
+            writer.name("name").value(album.getName());
+            writer.name("artists").beginArray();
+            for (String artist : album.getArtists()) {
+                writer.value(artist);
+            }
+            writer.endArray();
+            writer.name("url").value(album.getUri());
+        } else if (entity instanceof MarketAlbum) {
+            MarketAlbum album = (MarketAlbum) entity;
+            writeFields(writer, album.getAlbum());
+            writer.name("markets").beginArray();
+            for (String market : album.getMarkets()) {
+                writer.value(market);
+            }
+            writer.endArray();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package advisor.view;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * An entity that writes its command line representation straight into the output,
+ * without building it as a {@link java.lang.String} first.
+ *
+ * @author Alex Giazitzis
+ */
+public interface Renderable {
+    /**
+     * Writes the entity, the same way its {@link java.lang.Object#toString()} represents it.
+     * @param  out - the {@link java.io.Writer} to write into.
+     * @throws IOException if the writer failed.
+     */
+    void render(Writer out) throws IOException;
+}
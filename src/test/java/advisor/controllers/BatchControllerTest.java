@@ -0,0 +1,137 @@
+package advisor.controllers;
+
+import advisor.Main;
+import advisor.mock.MockSpotifyServer;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs scripts against the mock API, with credentials stored as if the user ran {@code auth} before.
+ */
+class BatchControllerTest {
+    @TempDir
+    static Path directory;
+
+    private static MockSpotifyServer mock;
+
+    @BeforeAll
+    static void startMock() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        MockSpotifyServer.Settings settings = MockSpotifyServer.Settings
+                .fromArguments(List.of("-featured", "12")).port(port);
+        mock = new MockSpotifyServer(settings);
+        mock.start();
+        Main.accessPoint = settings.getUrl();
+        Main.resourcePoint = settings.getUrl();
+        Main.pageSize = 5;
+        Main.refresh = 0;
+        Main.snapshotFile = directory.resolve("snapshot.bin").toString();
+        Main.credentialsFile = directory.resolve("credentials.properties").toString();
+        Files.writeString(Path.of(Main.credentialsFile),
+                          "access_token=mock-access-1\nrefresh_token=mock-refresh-1\nexpires_at=" +
+                          (System.currentTimeMillis() + 3_600_000) + "\n");
+    }
+
+    @AfterAll
+    static void stopMock() {
+        mock.stop();
+    }
+
+    @Test
+    void pagesWithinTheEndpointAndReportsWhatCannotRun() throws IOException {
+        List<JsonObject> records = runNdjson("prev", "featured", "next", "next", "next", "prev", "prev", "prev",
+                                             "bogus", "crawl", "", "# comment", "new --markets usa");
+
+        assertError(records.get(0), 1, "No pages to show.");
+        assertPage(records.get(1), 2, 0, 12);
+        assertPage(records.get(2), 3, 5, 12);
+        assertPage(records.get(3), 4, 10, 12);
+        assertError(records.get(4), 5, "No more pages.");
+        assertPage(records.get(5), 6, 5, 12);
+        assertPage(records.get(6), 7, 0, 12);
+        assertError(records.get(7), 8, "No more pages.");
+        assertError(records.get(8), 9, "Invalid option inputted. Try again.");
+        assertError(records.get(9), 10, "crawl is only available in the interactive mode.");
+        assertError(records.get(10), 13, "Provide the markets as country codes, e.g. new --markets US,GB,DE.");
+        assertEquals(11, records.size());
+        assertEquals("featured-playlist-10", records.get(3).getAsJsonArray("items").get(0)
+                                                       .getAsJsonObject().get("id").getAsString());
+    }
+
+    @Test
+    void mergesMarketsAndSearchesWhatWasFetchedBefore() throws IOException {
+        List<JsonObject> records = runNdjson("new --markets US,GB", "next", "playlists soul 0", "search soul velvet");
+
+        assertPage(records.get(0), 1, 0, 100);
+        JsonObject album = records.get(0).getAsJsonArray("items").get(0).getAsJsonObject();
+        assertEquals("[\"US\",\"GB\"]", album.get("markets").toString());
+        assertPage(records.get(1), 2, 5, 100);
+        assertPage(records.get(2), 3, 0, 100);
+        assertEquals("ok", records.get(3).get("status").getAsString());
+        assertTrue(records.get(3).getAsJsonArray("items").toString().contains("\"id\":\"category-0-playlist-1\""),
+                   records.get(3).toString());
+    }
+
+    @Test
+    void writesTheTextOfTheInteractiveMode() throws IOException {
+        String output = run("text", "categories", "next");
+
+        assertTrue(output.contains("---PAGE 1 OF 10---\n"), output);
+        assertTrue(output.endsWith("---PAGE 2 OF 10---\n"), output);
+    }
+
+    private static List<JsonObject> runNdjson(final String... lines) throws IOException {
+        List<JsonObject> records = new ArrayList<>();
+        for (String record : run("ndjson", lines).split("\n")) {
+            records.add(JsonParser.parseString(record).getAsJsonObject());
+        }
+        return records;
+    }
+
+    private static String run(final String format, final String... lines) throws IOException {
+        Path script = Files.createTempFile(directory, "script", ".txt");
+        Files.write(script, List.of(lines));
+        PrintStream           original = System.out;
+        ByteArrayOutputStream output   = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+        try {
+            BatchController.run(script, format);
+        } finally {
+            System.setOut(original);
+        }
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    private static void assertPage(final JsonObject record, final int line, final int offset, final int total) {
+        assertEquals(line, record.get("line").getAsInt(), record.toString());
+        assertEquals("ok", record.get("status").getAsString(), record.toString());
+        assertEquals(offset, record.get("offset").getAsInt(), record.toString());
+        assertEquals(total, record.get("total").getAsInt(), record.toString());
+    }
+
+    private static void assertError(final JsonObject record, final int line, final String error) {
+        assertEquals(line, record.get("line").getAsInt(), record.toString());
+        assertEquals("error", record.get("status").getAsString(), record.toString());
+        assertEquals(error, record.get("error").getAsString(), record.toString());
+    }
+}
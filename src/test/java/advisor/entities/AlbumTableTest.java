@@ -0,0 +1,87 @@
+package advisor.entities;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AlbumTableTest {
+    @Test
+    void readsEveryRowBack() {
+        AlbumTable table = new AlbumTable.Builder()
+                .add("Blue", List.of("A", "B"), "https://open.spotify.com/album/a1")
+                .add(null, List.of(), null)
+                .add("Ωμέγα " + "x".repeat(300), List.of("B"), "https://open.spotify.com/album/a3")
+                .build();
+
+        assertEquals(3, table.size());
+        assertEquals("Blue", table.get(0).getName());
+        assertEquals(List.of("A", "B"), table.get(0).getArtists());
+        assertEquals("https://open.spotify.com/album/a1", table.get(0).getUri());
+        assertEquals("a1", table.get(0).getId());
+        assertNull(table.get(1).getName());
+        assertEquals(List.of(), table.get(1).getArtists());
+        assertNull(table.get(1).getUri());
+        assertNull(table.get(1).getId());
+        assertEquals("Ωμέγα " + "x".repeat(300), table.get(2).getName());
+        assertEquals(List.of("B"), table.get(2).getArtists());
+    }
+
+    @Test
+    void internsTheArtistsAndLinkPrefixesAcrossTables() {
+        AlbumTable first  = new AlbumTable.Builder()
+                .add("One", List.of(new String(new char[] {'A', 'r', 't'})), "https://open.spotify.com/album/1")
+                .build();
+        AlbumTable second = new AlbumTable.Builder()
+                .add("Two", List.of(new String(new char[] {'A', 'r', 't'})), "https://open.spotify.com/album/2")
+                .build();
+
+        assertSame(first.get(0).getArtists().get(0), second.get(0).getArtists().get(0));
+        assertEquals("https://open.spotify.com/album/2", second.get(0).getUri());
+    }
+
+    @Test
+    void keepsDecodedNamesAndLinks() {
+        AlbumTable table = new AlbumTable.Builder().add("One", List.of(), "https://open.spotify.com/album/1").build();
+
+        assertSame(table.get(0).getName(), table.get(0).getName());
+        assertSame(table.get(0).getUri(), table.get(0).getUri());
+    }
+
+    @Test
+    void holdsTheFieldsOfSingleAlbums() {
+        Album album = new Album("Blue", List.of("A"), "https://open.spotify.com/album/a1");
+
+        assertEquals("Blue", album.getName());
+        assertEquals(List.of("A"), album.getArtists());
+        assertEquals("a1", album.getId());
+        assertNull(new Album("Blue", List.of(), null).getId());
+    }
+
+    @Test
+    void rejectsRowsOutOfBounds() {
+        AlbumTable table = new AlbumTable.Builder().add("One", List.of("A"), null).build();
+
+        assertThrows(IndexOutOfBoundsException.class, () -> table.get(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> table.get(0).getArtists().get(1));
+    }
+
+    @Test
+    void startsANewGenerationOfThePoolOnceFull() {
+        StringPool pool = new StringPool(2);
+        String     a    = pool.intern(new String(new char[] {'a'}));
+        String     b    = pool.intern("b");
+
+        assertSame(a, pool.intern(new String(new char[] {'a'})));
+        assertNull(pool.intern(null));
+        assertEquals(2, pool.size());
+        String c = pool.intern("c");
+        assertEquals("c", c);
+        assertEquals(1, pool.size());
+        assertEquals(b, pool.intern("b"));
+    }
+}
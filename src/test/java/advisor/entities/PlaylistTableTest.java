@@ -0,0 +1,29 @@
+package advisor.entities;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PlaylistTableTest {
+    @Test
+    void readsEveryRowBack() {
+        PlaylistTable table = new PlaylistTable.Builder()
+                .add("Mood", "https://open.spotify.com/playlist/p1", "p1", "s1")
+                .add("Focus", "https://open.spotify.com/playlist/p2", "other", null)
+                .add(null, null, null, null)
+                .build();
+
+        assertEquals(3, table.size());
+        assertEquals("Mood", table.get(0).getName());
+        assertEquals("https://open.spotify.com/playlist/p1", table.get(0).getUrl());
+        assertEquals("p1", table.get(0).getId());
+        assertEquals("s1", table.get(0).getSnapshotId());
+        assertEquals("other", table.get(1).getId());
+        assertEquals("https://open.spotify.com/playlist/p2", table.get(1).getUrl());
+        assertNull(table.get(1).getSnapshotId());
+        assertNull(table.get(2).getName());
+        assertNull(table.get(2).getUrl());
+        assertNull(table.get(2).getId());
+    }
+}
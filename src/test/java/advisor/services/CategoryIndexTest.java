@@ -0,0 +1,46 @@
+package advisor.services;
+
+import advisor.entities.Category;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CategoryIndexTest {
+    private static final Category ROCK    = new Category("Rock", "rock");
+    private static final Category ROMANCE = new Category("Romance", "romance");
+    private static final Category HIP_HOP = new Category("Hip  Hop", "hiphop");
+    private static final Category LATIN   = new Category("Música Latina", "latin");
+    private static final Category JAZZ    = new Category("Jazz", "jazz");
+
+    private final CategoryIndex index = new CategoryIndex(List.of(ROCK, ROMANCE, HIP_HOP, LATIN, JAZZ));
+
+    @Test
+    void findsCategoriesByNameInAnyCaseAccentsAndSpacing() {
+        assertSame(ROCK, index.find("ROCK"));
+        assertSame(HIP_HOP, index.find(" hip hop "));
+        assertSame(LATIN, index.find("musica latina"));
+        assertNull(index.find("roc"));
+    }
+
+    @Test
+    void listsCategoriesStartingWithAPrefixAlphabetically() {
+        assertEquals(List.of(ROCK, ROMANCE), index.withPrefix("ro", 10));
+        assertEquals(List.of(ROCK), index.withPrefix("RO", 1));
+        assertTrue(index.withPrefix("x", 10).isEmpty());
+    }
+
+    @Test
+    void suggestsPrefixMatchesBeforeTheClosestNames() {
+        assertEquals(List.of(ROCK, ROMANCE), index.suggest("ro", 5));
+        assertEquals(List.of(ROCK), index.suggest("rok", 1));
+        assertEquals(ROCK, index.suggest("rokc", 5).get(0));
+        assertEquals(List.of(JAZZ), index.suggest("jaz", 5));
+        assertEquals(List.of(LATIN), index.suggest("musica latna", 5));
+        assertTrue(index.suggest("classical", 5).isEmpty());
+    }
+}
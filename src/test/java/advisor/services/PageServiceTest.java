@@ -0,0 +1,135 @@
+package advisor.services;
+
+import advisor.Main;
+import advisor.entities.Page;
+import advisor.entities.Playlist;
+import advisor.mock.MockSpotifyServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.http.HttpClient;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PageServiceTest {
+    private static MockSpotifyServer mock;
+    private static TokenService      tokens;
+    private static RequestScheduler  scheduler;
+
+    private final ParserService service = new ParserService();
+    private       ResponseCache     cache;
+    private       PageService       pages;
+
+    @BeforeAll
+    static void startMock() throws IOException, InterruptedException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        MockSpotifyServer.Settings settings = MockSpotifyServer.Settings
+                .fromArguments(List.of("-featured", "12")).port(port);
+        mock = new MockSpotifyServer(settings);
+        mock.start();
+        Main.accessPoint = settings.getUrl();
+        Main.resourcePoint = settings.getUrl();
+        HttpClient client = HttpClient.newHttpClient();
+        tokens = new TokenService(client, null);
+        tokens.authorize("code=mock");
+        scheduler = new RequestScheduler(client, 1000, 100, 0);
+    }
+
+    @AfterAll
+    static void stopMock() {
+        tokens.close();
+        mock.stop();
+    }
+
+    @BeforeEach
+    void createService() {
+        cache = new ResponseCache(1 << 20);
+        pages = new PageService(scheduler, tokens, cache);
+    }
+
+    @Test
+    void fetchesPagesByOffsetAndLimit() throws Exception {
+        Page<Playlist> page = pages.fetch("featured-playlists", 10, 5, service::getPlaylists).get();
+
+        assertEquals(10, page.getOffset());
+        assertEquals(12, page.getTotal());
+        assertEquals(2, page.getItems().size());
+        assertEquals("featured-playlist-10", page.getItems().get(0).getId());
+    }
+
+    @Test
+    void answersFreshPagesFromTheCache() throws Exception {
+        Page<Playlist> first  = pages.fetch("featured-playlists", 0, 5, service::getPlaylists).get();
+        Page<Playlist> second = pages.fetch("featured-playlists", 0, 5, service::getPlaylists).get();
+
+        assertSame(first, second);
+    }
+
+    @Test
+    void revalidatesExpiredPagesWithTheirETag() throws Exception {
+        Page<Playlist> first = pages.fetch("featured-playlists", 0, 5, service::getPlaylists).get();
+        Map.Entry<String, ResponseCache.Entry> cached = cache.entries().entrySet().iterator().next();
+        ResponseCache.Entry entry = cached.getValue();
+        cache.put(cached.getKey(), new ResponseCache.Entry(entry.getPage(), entry.getEtag(), entry.getSize(),
+                                                           entry.getTtl(), Instant.now().minusSeconds(1)));
+        assertFalse(cache.get(cached.getKey()).isFresh());
+
+        Page<Playlist> revalidated = pages.fetch("featured-playlists", 0, 5, service::getPlaylists, false).get();
+
+        assertSame(first, revalidated);
+        assertTrue(cache.get(cached.getKey()).isFresh());
+    }
+
+    @Test
+    void refetchesExpiredPagesWhoseETagChanged() throws Exception {
+        Page<Playlist> first = pages.fetch("featured-playlists", 0, 5, service::getPlaylists).get();
+        Map.Entry<String, ResponseCache.Entry> cached = cache.entries().entrySet().iterator().next();
+        ResponseCache.Entry entry = cached.getValue();
+        cache.put(cached.getKey(), new ResponseCache.Entry(entry.getPage(), "\"changed\"", entry.getSize(),
+                                                           entry.getTtl(), Instant.now().minusSeconds(1)));
+
+        Page<Playlist> refetched = pages.fetch("featured-playlists", 0, 5, service::getPlaylists, false).get();
+
+        assertNotSame(first, refetched);
+        assertEquals(first.getItems().get(0).getId(), refetched.getItems().get(0).getId());
+        assertEquals(entry.getEtag(), cache.get(cached.getKey()).getEtag());
+    }
+
+    @Test
+    void fetchesEveryItemOfAnEndpoint() throws Exception {
+        Page<Playlist> every = pages.fetchEvery("featured-playlists", service::getPlaylists).get();
+
+        assertEquals(12, every.getItems().size());
+        assertEquals("featured-playlist-11", every.getItems().get(11).getId());
+    }
+
+    @Test
+    void freesTheSlotOfRequestsThatCouldNotBeSent() throws Exception {
+        Map<String, Object> outcomes = new ConcurrentHashMap<>();
+
+        pages.fetchAll(List.of("not an endpoint", "neither is this", "featured-playlists"), 0, 5,
+                       service::getPlaylists, 1,
+                       (endpoint, page, failure) -> outcomes.put(endpoint, page != null ? page : failure))
+             .get(5, TimeUnit.SECONDS);
+
+        assertTrue(outcomes.get("not an endpoint") instanceof IllegalArgumentException);
+        assertTrue(outcomes.get("neither is this") instanceof IllegalArgumentException);
+        assertEquals(5, ((Page<?>) outcomes.get("featured-playlists")).getItems().size());
+    }
+}
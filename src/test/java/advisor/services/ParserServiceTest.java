@@ -0,0 +1,120 @@
+package advisor.services;
+
+import advisor.entities.Album;
+import advisor.entities.Category;
+import advisor.entities.Page;
+import advisor.entities.Playlist;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParserServiceTest {
+    private final ParserService service = new ParserService();
+
+    @Test
+    void readsThePagingAndItemsOfPlaylists() throws IOException {
+        Page<Playlist> page = service.getPlaylists(json(
+                "{\"message\":\"Popular\",\"playlists\":{\"href\":\"ignored\",\"items\":["
+                + "{\"name\":\"Mood\",\"id\":\"p1\",\"snapshot_id\":\"s1\","
+                + "\"external_urls\":{\"spotify\":\"https://open.spotify.com/playlist/p1\"},\"tracks\":{\"total\":3}},"
+                + "null,"
+                + "{\"name\":\"Focus\",\"id\":\"other\",\"snapshot_id\":null,"
+                + "\"external_urls\":{\"spotify\":\"https://open.spotify.com/playlist/p2\"}}"
+                + "],\"offset\":5,\"limit\":2,\"total\":12}}"));
+
+        assertFalse(page.hasError());
+        assertEquals(5, page.getOffset());
+        assertEquals(2, page.getLimit());
+        assertEquals(12, page.getTotal());
+        assertEquals(2, page.getItems().size());
+        Playlist mood = page.getItems().get(0);
+        assertEquals("Mood", mood.getName());
+        assertEquals("p1", mood.getId());
+        assertEquals("s1", mood.getSnapshotId());
+        assertEquals("https://open.spotify.com/playlist/p1", mood.getUrl());
+        Playlist focus = page.getItems().get(1);
+        assertEquals("other", focus.getId());
+        assertNull(focus.getSnapshotId());
+        assertEquals("https://open.spotify.com/playlist/p2", focus.getUrl());
+    }
+
+    @Test
+    void readsTheArtistsAndLinksOfAlbums() throws IOException {
+        Page<Album> page = service.getAlbums(json(
+                "{\"albums\":{\"items\":["
+                + "{\"name\":\"Blue\",\"artists\":[{\"name\":\"A\",\"id\":\"1\"},{\"name\":\"B\"}],"
+                + "\"external_urls\":{\"spotify\":\"https://open.spotify.com/album/a1\"}},"
+                + "{\"name\":\"Ωμέγα\",\"artists\":[],\"external_urls\":{}}"
+                + "],\"offset\":0,\"limit\":20,\"total\":2}}"));
+
+        Album blue = page.getItems().get(0);
+        assertEquals("Blue", blue.getName());
+        assertEquals(List.of("A", "B"), blue.getArtists());
+        assertEquals("https://open.spotify.com/album/a1", blue.getUri());
+        assertEquals("a1", blue.getId());
+        Album omega = page.getItems().get(1);
+        assertEquals("Ωμέγα", omega.getName());
+        assertTrue(omega.getArtists().isEmpty());
+        assertNull(omega.getUri());
+    }
+
+    @Test
+    void readsCategories() throws IOException {
+        Page<Category> page = service.getCategories(json(
+                "{\"categories\":{\"items\":[{\"id\":\"rock\",\"name\":\"Rock\",\"icons\":[{\"url\":\"x\"}]}],"
+                + "\"total\":1}}"));
+
+        assertEquals(1, page.getTotal());
+        assertEquals("rock", page.getItems().get(0).getId());
+        assertEquals("Rock", page.getItems().get(0).getName());
+    }
+
+    @Test
+    void returnsAnErrorPageForErrorPayloads() throws IOException {
+        Page<Playlist> rest = service.getPlaylists(json(
+                "{\"error\":{\"status\":404,\"message\":\"Specified id doesn't exist\"}}"));
+        assertTrue(rest.hasError());
+        assertEquals("Specified id doesn't exist", rest.getError());
+
+        assertEquals("Bad", service.getErrorMessage("{\"error\":\"invalid_grant\",\"error_description\":\"Bad\"}"));
+        assertEquals("Bad", service.getErrorMessage("{\"error_description\":\"Bad\",\"error\":\"invalid_grant\"}"));
+        assertEquals("invalid_grant", service.getErrorMessage("{\"error\":\"invalid_grant\"}"));
+    }
+
+    @Test
+    void returnsAnEmptyPageWithoutTheRootField() throws IOException {
+        Page<Album> page = service.getAlbums(json("{\"playlists\":{\"items\":[{\"name\":\"x\"}]}}"));
+
+        assertFalse(page.hasError());
+        assertTrue(page.getItems().isEmpty());
+    }
+
+    @Test
+    void failsOnMalformedPayloads() {
+        assertThrows(IOException.class, () -> service.getAlbums(json("{\"albums\":{\"items\":[{\"name\":")));
+    }
+
+    @Test
+    void addsParsedEntitiesToTheSearchIndex() throws IOException {
+        SearchIndex index = new SearchIndex();
+        new ParserService(index).getCategories(json(
+                "{\"categories\":{\"items\":[{\"id\":\"rock\",\"name\":\"Rock\"},{\"id\":\"pop\",\"name\":\"Pop\"}]}}"));
+
+        assertEquals(2, index.size());
+        assertEquals("rock", ((Category) index.search("rock", 10).get(0)).getId());
+    }
+
+    private static InputStream json(final String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
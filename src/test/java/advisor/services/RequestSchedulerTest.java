@@ -0,0 +1,146 @@
+package advisor.services;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestSchedulerTest {
+    private final Queue<Integer> statuses = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger  received = new AtomicInteger();
+    private final HttpClient     client   = HttpClient.newHttpClient();
+    private       HttpServer     server;
+    private       HttpRequest    request;
+
+    /**
+     * Answers every request with the next scripted status, or 200 once the script ran out,
+     * telling rate limited requests to retry after a second.
+     */
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            received.incrementAndGet();
+            Integer status = statuses.poll();
+            if (status != null && status == 429) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+            }
+            exchange.sendResponseHeaders(status == null ? 200 : status, -1);
+            exchange.close();
+        });
+        server.start();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getAddress().getPort() + "/"))
+                             .build();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void startsRequestsAtTheSustainedRateOnceTheBurstIsSpent() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(client, 20, 2, 0);
+        long             start     = System.nanoTime();
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            responses.add(scheduler.send(request, HttpResponse.BodyHandlers.discarding()));
+        }
+        for (CompletableFuture<HttpResponse<Void>> response : responses) {
+            assertEquals(200, response.get().statusCode());
+        }
+
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(elapsed >= 180, "4 requests past the burst of 2 at 20/s take 200ms, took " + elapsed + "ms");
+    }
+
+    @Test
+    void retriesRateLimitedRequestsOnceTheirRetryAfterPassed() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(client, 1000, 10, 3);
+        statuses.add(429);
+        long start = System.nanoTime();
+
+        HttpResponse<Void> response = scheduler.send(request, HttpResponse.BodyHandlers.discarding()).get();
+
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        assertEquals(200, response.statusCode());
+        assertEquals(2, received.get());
+        assertTrue(elapsed >= 950, "Retry-After of 1s was not waited for, took " + elapsed + "ms");
+    }
+
+    @Test
+    void holdsOtherRequestsBackWhileRateLimited() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(client, 1000, 10, 3);
+        statuses.add(429);
+        scheduler.send(request, HttpResponse.BodyHandlers.discarding());
+        while (received.get() == 0) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(50);
+        long start = System.nanoTime();
+
+        assertEquals(200, scheduler.send(request, HttpResponse.BodyHandlers.discarding()).get().statusCode());
+
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(elapsed >= 800, "request was not held back by the Retry-After, took " + elapsed + "ms");
+    }
+
+    @Test
+    void handsOverTheLastResponseOnceRetriesRanOut() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(client, 1000, 10, 2);
+        statuses.addAll(List.of(503, 500, 502, 200));
+
+        HttpResponse<Void> response = scheduler.send(request, HttpResponse.BodyHandlers.discarding()).get();
+
+        assertEquals(502, response.statusCode());
+        assertEquals(3, received.get());
+    }
+
+    @Test
+    void doesNotRetryClientErrors() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(client, 1000, 10, 3);
+        statuses.add(404);
+
+        assertEquals(404, scheduler.send(request, HttpResponse.BodyHandlers.discarding()).get().statusCode());
+        assertEquals(1, received.get());
+    }
+
+    @Test
+    void sharesOperationsInFlightByKey() throws Exception {
+        RequestScheduler          scheduler = new RequestScheduler(client, 1000, 10, 0);
+        CompletableFuture<String> pending   = new CompletableFuture<>();
+        AtomicInteger             started   = new AtomicInteger();
+
+        CompletableFuture<String> first  = scheduler.singleFlight("key", () -> {
+            started.incrementAndGet();
+            return pending;
+        });
+        CompletableFuture<String> second = scheduler.singleFlight("key", () -> {
+            started.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        pending.complete("shared");
+
+        assertSame(first, second);
+        assertEquals("shared", second.get());
+        assertEquals(1, started.get());
+        assertEquals("next", scheduler.singleFlight("key", () -> CompletableFuture.completedFuture("next")).get());
+    }
+}
@@ -0,0 +1,82 @@
+package advisor.services;
+
+import advisor.entities.Page;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponseCacheTest {
+    private static final Page<String> PAGE = new Page<>(List.of("item"), 0, 1, 1);
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntriesBeyondItsSize() {
+        ResponseCache cache = new ResponseCache(100);
+        cache.put("a", entry(40));
+        cache.put("b", entry(40));
+        cache.get("a");
+        cache.put("c", entry(40));
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertEquals(List.of("a", "c"), List.copyOf(cache.entries().keySet()));
+    }
+
+    @Test
+    void replacesEntriesWithoutCountingThemTwice() {
+        ResponseCache cache = new ResponseCache(100);
+        cache.put("a", entry(60));
+        cache.put("a", entry(60));
+        cache.put("b", entry(40));
+
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("b"));
+    }
+
+    @Test
+    void skipsEntriesLargerThanItsSize() {
+        ResponseCache cache = new ResponseCache(100);
+        cache.put("a", entry(40));
+        cache.put("b", entry(101));
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+    }
+
+    @Test
+    void servesExpiredEntriesOnlyWhileTheyMayBeRevalidated() {
+        ResponseCache.Entry fresh    = new ResponseCache.Entry(PAGE, "\"v1\"", 1, Duration.ofMinutes(10));
+        ResponseCache.Entry stale    = new ResponseCache.Entry(PAGE, "\"v1\"", 1, Duration.ofMinutes(10),
+                                                               Instant.now().minusSeconds(1));
+        ResponseCache.Entry tooStale = new ResponseCache.Entry(
+                PAGE, "\"v1\"", 1, Duration.ofMinutes(10),
+                Instant.now().minus(ResponseCache.STALE_WHILE_REVALIDATE).minusSeconds(1));
+
+        assertTrue(fresh.isFresh());
+        assertFalse(stale.isFresh());
+        assertTrue(stale.isServableStale());
+        assertFalse(tooStale.isServableStale());
+        assertTrue(stale.revalidated().isFresh());
+        assertEquals("\"v1\"", stale.revalidated().getEtag());
+    }
+
+    @Test
+    void keepsEndpointsFreshForAsLongAsTheyChange() {
+        assertEquals(Duration.ofMinutes(10), ResponseCache.ttl("featured-playlists"));
+        assertEquals(Duration.ofHours(1), ResponseCache.ttl("new-releases?country=GB"));
+        assertEquals(Duration.ofMinutes(30), ResponseCache.ttl("categories/rock/playlists"));
+        assertEquals(Duration.ofHours(24), ResponseCache.ttl("categories"));
+    }
+
+    private static ResponseCache.Entry entry(final long size) {
+        return new ResponseCache.Entry(PAGE, null, size, Duration.ofMinutes(1));
+    }
+}
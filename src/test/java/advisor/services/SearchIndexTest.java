@@ -0,0 +1,86 @@
+package advisor.services;
+
+import advisor.entities.Album;
+import advisor.entities.Category;
+import advisor.entities.Playlist;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchIndexTest {
+    private static final Album    BLUE  = new Album("Kind of Blue", List.of("Miles Davis"),
+                                                    "https://open.spotify.com/album/a1");
+    private static final Album    BITCH = new Album("Bitches Brew", List.of("Miles Davis"),
+                                                    "https://open.spotify.com/album/a2");
+    private static final Playlist DEEP  = new Playlist("Deep Blue Focus", "https://open.spotify.com/playlist/p1",
+                                                       "p1", "s1");
+    private static final Category JAZZ  = new Category("Jazz", "jazz");
+    private static final Category LATIN = new Category("Música Latina", "latin");
+
+    @Test
+    void findsEntitiesHoldingEveryTerm() {
+        SearchIndex index = index();
+
+        assertEquals(List.of(BLUE, DEEP), index.search("blue", 10));
+        assertEquals(List.of(BLUE, BITCH), index.search("MILES davis", 10));
+        assertEquals(List.of(BLUE), index.search("blue miles", 10));
+        assertTrue(index.search("blue brew", 10).isEmpty());
+    }
+
+    @Test
+    void matchesWholeTokensUnlessTheTermEndsWithAStar() {
+        SearchIndex index = index();
+
+        assertTrue(index.search("bitch", 10).isEmpty());
+        assertEquals(List.of(BITCH), index.search("bitch*", 10));
+        assertEquals(List.of(BITCH), index.search("br*", 10));
+        assertEquals(List.of(DEEP), index.search("deep fo*", 10));
+    }
+
+    @Test
+    void normalizesAccentsAndCase() {
+        SearchIndex index = index();
+
+        assertEquals(List.of(LATIN), index.search("musica", 10));
+        assertEquals(List.of(LATIN), index.search("MÚSICA latina", 10));
+    }
+
+    @Test
+    void returnsAtMostTheGivenAmountInTheOrderAdded() {
+        SearchIndex index = index();
+
+        assertEquals(List.of(BLUE), index.search("miles", 1));
+        assertTrue(index.search("", 10).isEmpty());
+    }
+
+    @Test
+    void replacesEntitiesAddedAgain() {
+        SearchIndex index   = index();
+        Album       renamed = new Album("Kind of Green", List.of("Miles Davis"), "https://open.spotify.com/album/a1");
+        index.addAll(List.of(renamed));
+
+        assertEquals(5, index.size());
+        assertEquals(List.of(DEEP), index.search("blue", 10));
+        assertEquals(List.of(renamed), index.search("green", 10));
+        assertEquals(List.of(renamed, BITCH), index.search("miles", 10));
+    }
+
+    @Test
+    void ignoresOtherItems() {
+        SearchIndex index = new SearchIndex();
+        index.addAll(List.of("blue", 1));
+
+        assertEquals(0, index.size());
+        assertTrue(index.search("blue", 10).isEmpty());
+    }
+
+    private static SearchIndex index() {
+        SearchIndex index = new SearchIndex();
+        index.addAll(List.of(BLUE, BITCH, DEEP));
+        index.addAll(List.of(JAZZ, LATIN));
+        return index;
+    }
+}
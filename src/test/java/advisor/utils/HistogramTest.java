@@ -0,0 +1,85 @@
+package advisor.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistogramTest {
+    @Test
+    void reportsNothingUntilSomethingIsRecorded() {
+        Histogram histogram = new Histogram();
+
+        assertEquals(0, histogram.quantile(0.5));
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getSum());
+    }
+
+    @Test
+    void bucketsSmallValuesExactly() {
+        for (long value = 0; value < 16; value++) {
+            Histogram histogram = new Histogram();
+            histogram.record(value);
+
+            assertEquals(value, histogram.quantile(1), "value " + value);
+        }
+    }
+
+    @Test
+    void reportsQuantilesWithinAnEighthAboveTheRecordedValue() {
+        for (long value = 1; value < 1L << 40; value = value * 3 + 1) {
+            Histogram histogram = new Histogram();
+            histogram.record(value);
+            long bound = histogram.quantile(0.5);
+
+            assertTrue(bound >= value && bound <= value + value / 8, value + " reported as " + bound);
+        }
+    }
+
+    @Test
+    void givesEveryBucketItsOwnUpperBound() {
+        Histogram histogram = new Histogram();
+        histogram.record(1023);
+        histogram.record(1024);
+
+        assertEquals(1023, histogram.quantile(0.5));
+        assertEquals(1151, histogram.quantile(1));
+    }
+
+    @Test
+    void ranksQuantilesByTheCountOfEveryBucket() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500_500_000, histogram.getSum());
+        assertWithin(500_000, histogram.quantile(0.5));
+        assertWithin(990_000, histogram.quantile(0.99));
+        assertWithin(1_000_000, histogram.quantile(0.999));
+        assertWithin(1000, histogram.quantile(0));
+    }
+
+    @Test
+    void recordsNegativeValuesAsZero() {
+        Histogram histogram = new Histogram();
+        histogram.record(-5);
+
+        assertEquals(0, histogram.quantile(1));
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getSum());
+    }
+
+    @Test
+    void recordsTheLargestValues() {
+        Histogram histogram = new Histogram();
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(Long.MAX_VALUE, histogram.quantile(1));
+    }
+
+    private static void assertWithin(final long expected, final long bound) {
+        assertTrue(bound >= expected && bound <= expected + expected / 8, expected + " reported as " + bound);
+    }
+}
@@ -0,0 +1,48 @@
+package advisor.view;
+
+import advisor.entities.Album;
+import advisor.entities.Category;
+import advisor.entities.Playlist;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CsvViewTest {
+    @Test
+    void writesEveryTypeWithTheSameColumns() throws IOException {
+        assertEquals("playlist,p1,Mood,,https://open.spotify.com/playlist/p1,rock\r\n",
+                     row(new Playlist("Mood", "https://open.spotify.com/playlist/p1", "p1", null), "rock"));
+        assertEquals("category,rock,Rock,,,\r\n", row(new Category("Rock", "rock"), null));
+        assertEquals("album,,Blue,A;B,https://open.spotify.com/album/a1,\r\n",
+                     row(new Album("Blue", List.of("A", "B"), "https://open.spotify.com/album/a1"), null));
+    }
+
+    @Test
+    void quotesValuesHoldingSeparatorsQuotesOrLineBreaks() throws IOException {
+        assertEquals("category,c,\"Rock, Pop\",,,\r\n", row(new Category("Rock, Pop", "c"), null));
+        assertEquals("category,c,\"The \"\"Best\"\"\",,,\r\n", row(new Category("The \"Best\"", "c"), null));
+        assertEquals("category,c,\"Two\nLines\",,,\r\n", row(new Category("Two\nLines", "c"), null));
+        assertEquals("category,c,\"Carriage\rReturn\",,,\r\n", row(new Category("Carriage\rReturn", "c"), null));
+        assertEquals("album,,Blue,\"A, Jr.;B\",,\r\n", row(new Album("Blue", List.of("A, Jr.", "B"), null), null));
+    }
+
+    @Test
+    void leavesOtherValuesUnquoted() throws IOException {
+        assertEquals("category,c,Música; 'Latina',,,\r\n", row(new Category("Música; 'Latina'", "c"), null));
+    }
+
+    @Test
+    void writesNothingForOtherItems() throws IOException {
+        assertEquals("", row("text", null));
+    }
+
+    private static String row(final Object entity, final String category) throws IOException {
+        StringWriter out = new StringWriter();
+        CsvView.writeRow(out, entity, category);
+        return out.toString();
+    }
+}